@@ -61,4 +61,88 @@ function smoothYAxis(id)
 {
     var chart = $("#" + id).highcharts();
     chart.yAxis[0].setExtremes(chart.yAxis[0].min, chart.yAxis[0].max*2);
-}
\ No newline at end of file
+}
+
+/*
+ * Lazy charts of the chunked report, their series are loaded from the files in data/index.js when they are expanded
+ */
+
+var lazyCharts = {};
+var loadedChunks = {};
+
+function lazyStockChart(id, options)
+{
+    lazyCharts[id] = options;
+}
+
+function loadScript(src, callback)
+{
+    var script = document.createElement('script');
+    script.type = 'text/javascript';
+    script.src = src;
+    script.onload = callback;
+    document.body.appendChild(script);
+}
+
+function reportChunk(id, precision, series)
+{
+    for(var s in series)
+    {
+        // the times are differences to the previous time in steps of the precision
+        var time = 0;
+        var data = [];
+        for(var i = 0; i < series[s].t.length; i++)
+        {
+            time += series[s].t[i];
+            data.push([time / precision, series[s].y[i]]);
+        }
+        loadedChunks[id].push({name: series[s].name, index: series[s].index, dataGrouping: {enabled: false}, data: data});
+    }
+}
+
+function expandChart(element, id)
+{
+    var options = lazyCharts[id];
+    if(options === undefined)
+    {
+        return;
+    }
+    delete lazyCharts[id];
+    element.innerHTML = "&#x25BC";
+
+    var draw = function()
+    {
+        options.series = loadedChunks[id].sort(function(a, b) { return a.index - b.index; });
+        Highcharts.stockChart(id, options);
+    };
+    var load = function()
+    {
+        var files = reportIndex[id] || [];
+        var pending = files.length;
+        loadedChunks[id] = [];
+        if(pending == 0)
+        {
+            draw();
+        }
+        for(var f in files)
+        {
+            loadScript(files[f], function()
+            {
+                pending--;
+                if(pending == 0)
+                {
+                    draw();
+                }
+            });
+        }
+    };
+
+    if(typeof reportIndex === 'undefined')
+    {
+        loadScript('data/index.js', load);
+    }
+    else
+    {
+        load();
+    }
+}
@@ -0,0 +1,77 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps every request to a live instance on a hash ring, so all operations of one request that reach this
+ * microservice are performed by the same instance. Each instance owns a fixed number of points on the ring. A
+ * selection is a O(log n) ring lookup, a killed instance only removes its own points and only the requests that were
+ * mapped to it move to another instance.
+ */
+public class ConsistentHashingBalancer implements LoadBalancer {
+    static final int POINTS_PER_INSTANCE = 64;
+
+    private TreeMap<Long, Microservice> ring;
+    private boolean[] live;
+
+    /**
+     * @param instances int: The number of instances of the microservice
+     */
+    public ConsistentHashingBalancer(int instances) {
+        ring = new TreeMap<>();
+        live = new boolean[instances];
+    }
+
+    @Override
+    public void addInstance(Microservice instance) {
+        if (live[instance.getSid()])
+            return;
+        for (int point = 0; point < POINTS_PER_INSTANCE; point++) {
+            ring.put(pointHash(instance, point), instance);
+        }
+        live[instance.getSid()] = true;
+    }
+
+    @Override
+    public void removeInstance(Microservice instance) {
+        if (!live[instance.getSid()])
+            return;
+        for (int point = 0; point < POINTS_PER_INSTANCE; point++) {
+            long hash = pointHash(instance, point);
+            if (ring.get(hash) == instance)
+                ring.remove(hash);
+        }
+        live[instance.getSid()] = false;
+    }
+
+    @Override
+    public void loadChanged(Microservice instance) {
+    }
+
+    @Override
+    public Microservice select(MessageObject request) {
+        if (ring.isEmpty())
+            return null;
+        Map.Entry<Long, Microservice> entry = ring.ceilingEntry(mix(request.getId()));
+        if (entry == null)
+            entry = ring.firstEntry();
+        return entry.getValue();
+    }
+
+    long pointHash(Microservice instance, int point) {
+        return mix(((long) instance.getName().hashCode() << 32) ^ ((long) instance.getSid() << 16) ^ point);
+    }
+
+    /**
+     * Spreads the bits of a key over the ring (finalizer of SplitMix64).
+     */
+    static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return key ^ (key >>> 31);
+    }
+}
@@ -0,0 +1,110 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+
+import java.util.Arrays;
+
+/**
+ * Selects the live instance with the fewest existing threads, ties go to the instance with the lower sid.
+ * The live instances are kept in an indexed binary min-heap, so a selection is O(1) and a change of load or a
+ * killed instance is O(log n).
+ */
+public class LeastConnectionsBalancer implements LoadBalancer {
+    private Microservice[] heap;
+    private int[] heapIndex;
+    private int size = 0;
+
+    /**
+     * @param instances int: The number of instances of the microservice
+     */
+    public LeastConnectionsBalancer(int instances) {
+        heap = new Microservice[instances];
+        heapIndex = new int[instances];
+        Arrays.fill(heapIndex, -1);
+    }
+
+    @Override
+    public void addInstance(Microservice instance) {
+        if (heapIndex[instance.getSid()] >= 0)
+            return;
+        heap[size] = instance;
+        heapIndex[instance.getSid()] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    @Override
+    public void removeInstance(Microservice instance) {
+        int index = heapIndex[instance.getSid()];
+        if (index < 0)
+            return;
+        size--;
+        if (index != size) {
+            heap[index] = heap[size];
+            heapIndex[heap[index].getSid()] = index;
+            heap[size] = null;
+            siftDown(index);
+            siftUp(index);
+        } else {
+            heap[size] = null;
+        }
+        heapIndex[instance.getSid()] = -1;
+    }
+
+    @Override
+    public void loadChanged(Microservice instance) {
+        int index = heapIndex[instance.getSid()];
+        if (index < 0)
+            return;
+        siftDown(index);
+        siftUp(heapIndex[instance.getSid()]);
+    }
+
+    @Override
+    public Microservice select(MessageObject request) {
+        if (size == 0)
+            return null;
+        return heap[0];
+    }
+
+    private boolean less(Microservice a, Microservice b) {
+        int loadA = a.getCPU().getExistingThreads().size();
+        int loadB = b.getCPU().getExistingThreads().size();
+        if (loadA != loadB)
+            return loadA < loadB;
+        return a.getSid() < b.getSid();
+    }
+
+    private void siftUp(int index) {
+        Microservice instance = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(instance, heap[parent]))
+                break;
+            heap[index] = heap[parent];
+            heapIndex[heap[index].getSid()] = index;
+            index = parent;
+        }
+        heap[index] = instance;
+        heapIndex[instance.getSid()] = index;
+    }
+
+    private void siftDown(int index) {
+        Microservice instance = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child]))
+                child = right;
+            if (!less(heap[child], instance))
+                break;
+            heap[index] = heap[child];
+            heapIndex[heap[index].getSid()] = index;
+            index = child;
+        }
+        heap[index] = instance;
+        heapIndex[instance.getSid()] = index;
+    }
+}
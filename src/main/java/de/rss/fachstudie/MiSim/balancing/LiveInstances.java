@@ -0,0 +1,53 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.Microservice;
+
+import java.util.Arrays;
+
+/**
+ * The live instances of a microservice in a dense array. The position of every instance is stored by its sid, so
+ * adding, removing and looking up an instance is O(1). Removing an instance moves the last instance into its
+ * position.
+ */
+class LiveInstances {
+    private Microservice[] live;
+    private int[] position;
+    private int size = 0;
+
+    LiveInstances(int instances) {
+        live = new Microservice[instances];
+        position = new int[instances];
+        Arrays.fill(position, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Microservice get(int index) {
+        return live[index];
+    }
+
+    boolean contains(Microservice instance) {
+        return position[instance.getSid()] >= 0;
+    }
+
+    void add(Microservice instance) {
+        if (contains(instance))
+            return;
+        live[size] = instance;
+        position[instance.getSid()] = size;
+        size++;
+    }
+
+    void remove(Microservice instance) {
+        int index = position[instance.getSid()];
+        if (index < 0)
+            return;
+        size--;
+        live[index] = live[size];
+        position[live[index].getSid()] = index;
+        live[size] = null;
+        position[instance.getSid()] = -1;
+    }
+}
@@ -0,0 +1,41 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+
+/**
+ * A <code>LoadBalancer</code> chooses the instance of a microservice that performs the next operation.
+ * Every microservice has its own load balancer, configured with the <code>loadBalancer</code> key of the
+ * architecture model. The balancer keeps its state up to date incrementally: the cpu of an instance reports every
+ * change of its existing threads and the chaos monkey reports every instance it kills, so a selection never has to
+ * scan all instances.
+ */
+public interface LoadBalancer {
+
+    /**
+     * Adds a live instance, called once per instance when the model is initialized.
+     *
+     * @param instance Microservice: The instance
+     */
+    void addInstance(Microservice instance);
+
+    /**
+     * Removes an instance that was killed. It will not be selected anymore.
+     *
+     * @param instance Microservice: The killed instance
+     */
+    void removeInstance(Microservice instance);
+
+    /**
+     * Called whenever the number of existing threads of an instance has changed.
+     *
+     * @param instance Microservice: The instance whose load has changed
+     */
+    void loadChanged(Microservice instance);
+
+    /**
+     * @param request MessageObject: The request which is going to be performed
+     * @return Microservice: The selected instance or null if no instance is alive
+     */
+    Microservice select(MessageObject request);
+}
@@ -0,0 +1,58 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import desmoj.core.dist.ContDistUniform;
+
+/**
+ * Picks two different live instances at random and selects the one with fewer existing threads.
+ * This needs no ordered state and comes close to least connections for large numbers of instances.
+ */
+public class PowerOfTwoChoicesBalancer implements LoadBalancer {
+    private LiveInstances live;
+    private ContDistUniform random;
+
+    /**
+     * @param random    ContDistUniform: The random stream of this balancer, uniform on [0, 1)
+     * @param instances int: The number of instances of the microservice
+     */
+    public PowerOfTwoChoicesBalancer(ContDistUniform random, int instances) {
+        live = new LiveInstances(instances);
+        this.random = random;
+    }
+
+    @Override
+    public void addInstance(Microservice instance) {
+        live.add(instance);
+    }
+
+    @Override
+    public void removeInstance(Microservice instance) {
+        live.remove(instance);
+    }
+
+    @Override
+    public void loadChanged(Microservice instance) {
+    }
+
+    @Override
+    public Microservice select(MessageObject request) {
+        int n = live.size();
+        if (n == 0)
+            return null;
+        if (n == 1)
+            return live.get(0);
+
+        int first = Math.min((int) (random.sample() * n), n - 1);
+        // draw the second instance from the remaining n - 1 instances
+        int second = Math.min((int) (random.sample() * (n - 1)), n - 2);
+        if (second >= first)
+            second++;
+
+        Microservice a = live.get(first);
+        Microservice b = live.get(second);
+        if (b.getCPU().getExistingThreads().size() < a.getCPU().getExistingThreads().size())
+            return b;
+        return a;
+    }
+}
@@ -0,0 +1,43 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import desmoj.core.dist.ContDistUniform;
+
+/**
+ * Selects a live instance uniformly at random, independent of its load.
+ */
+public class RandomBalancer implements LoadBalancer {
+    private LiveInstances live;
+    private ContDistUniform random;
+
+    /**
+     * @param random    ContDistUniform: The random stream of this balancer, uniform on [0, 1)
+     * @param instances int: The number of instances of the microservice
+     */
+    public RandomBalancer(ContDistUniform random, int instances) {
+        live = new LiveInstances(instances);
+        this.random = random;
+    }
+
+    @Override
+    public void addInstance(Microservice instance) {
+        live.add(instance);
+    }
+
+    @Override
+    public void removeInstance(Microservice instance) {
+        live.remove(instance);
+    }
+
+    @Override
+    public void loadChanged(Microservice instance) {
+    }
+
+    @Override
+    public Microservice select(MessageObject request) {
+        if (live.size() == 0)
+            return null;
+        return live.get(Math.min((int) (random.sample() * live.size()), live.size() - 1));
+    }
+}
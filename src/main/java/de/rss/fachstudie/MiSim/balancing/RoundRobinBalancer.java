@@ -0,0 +1,42 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+
+/**
+ * Selects the live instances one after another, independent of their load.
+ */
+public class RoundRobinBalancer implements LoadBalancer {
+    private LiveInstances live;
+    private int next = 0;
+
+    /**
+     * @param instances int: The number of instances of the microservice
+     */
+    public RoundRobinBalancer(int instances) {
+        live = new LiveInstances(instances);
+    }
+
+    @Override
+    public void addInstance(Microservice instance) {
+        live.add(instance);
+    }
+
+    @Override
+    public void removeInstance(Microservice instance) {
+        live.remove(instance);
+    }
+
+    @Override
+    public void loadChanged(Microservice instance) {
+    }
+
+    @Override
+    public Microservice select(MessageObject request) {
+        if (live.size() == 0)
+            return null;
+        if (next >= live.size())
+            next = 0;
+        return live.get(next++);
+    }
+}
@@ -1,9 +1,16 @@
 package de.rss.fachstudie.MiSim.entities;
 
+/**
+ * A dependency of an operation to an operation of another microservice.
+ * The service and operation names are read from the architecture model and resolved to the id of the target
+ * microservice and the target operation when the topology is built.
+ */
 public class Dependency {
     private String service;
     private String operation;
     private double probability;
+    private int serviceId = -1;
+    private Operation targetOperation;
 
     public Dependency() {
 
@@ -37,4 +44,20 @@ public class Dependency {
     public void setProbability(double probability) {
         this.probability = probability;
     }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public Operation getTargetOperation() {
+        return targetOperation;
+    }
+
+    public void setTargetOperation(Operation targetOperation) {
+        this.targetOperation = targetOperation;
+    }
 }
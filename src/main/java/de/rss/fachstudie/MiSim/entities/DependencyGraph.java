@@ -2,76 +2,81 @@ package de.rss.fachstudie.MiSim.entities;
 
 import de.rss.fachstudie.MiSim.resources.Thread;
 
+/**
+ * The <code>DependencyGraph</code> of a request links every called operation to the operation that waits for it.
+ * Nodes are reached through the thread that performs their operation, so inserting and completing a dependency is
+ * O(1) independent of the size of the request.
+ */
 public class DependencyGraph {
 
     private DependencyNode root = null;
 
     public DependencyGraph(Microservice rootService, Operation rootOperation, Thread thread) {
         this.root = new DependencyNode(rootService, rootOperation, thread);
+        thread.setDependencyNode(root);
     }
 
     public DependencyGraph() {
 
     }
 
-    public void insertDependency(Microservice s1, Operation o1, Microservice s2, Operation o2, Thread thread) {
-        if (root == null) {
-            root = new DependencyNode(s1, o1, thread);
-        }
-        insertDependency(s1, o1, s2, o2, thread, root);
-    }
-
-    private boolean insertDependency(Microservice s1, Operation o1, Microservice s2, Operation o2, Thread thread, DependencyNode node) {
-        if (node.getService().getName().equals(s1.getName()) && node.getOperation().getName().equals(o1.getName())) {
-            // This is the node to which the dependency should be added which has the dependency
-            DependencyNode newNode = new DependencyNode(s2, o2, null);
-            newNode.addDependingNode(node);
-            node.addNextNode(newNode);
-            node.setThread(thread);
-            return true;
-        } else {
-            // Look in nextNodes
-            for (DependencyNode nextNode : node.getNextNodes()) {
-                boolean inserted = insertDependency(s1, o1, s2, o2, thread, nextNode);
-
-                if (inserted) {
-                    return true;
-                }
+    /**
+     * Adds a dependency of the operation performed by the given thread on another operation.
+     *
+     * @param s1     Microservice: The instance which performs the depending operation
+     * @param o1     Operation: The depending operation
+     * @param s2     Microservice: The instance which performs the called operation
+     * @param o2     Operation: The called operation
+     * @param thread Thread: The thread of the depending operation
+     * @return DependencyNode: The node of the called operation
+     */
+    public DependencyNode insertDependency(Microservice s1, Operation o1, Microservice s2, Operation o2, Thread thread) {
+        DependencyNode node = thread.getDependencyNode();
+        if (node == null) {
+            node = new DependencyNode(s1, o1, thread);
+            thread.setDependencyNode(node);
+            if (root == null) {
+                root = node;
             }
         }
-        return false;
-    }
+        node.setThread(thread);
 
-    public DependencyNode getNode(Microservice service, Operation operation) {
-        return findNode(service, operation, root);
+        DependencyNode newNode = new DependencyNode(s2, o2, null);
+        newNode.setParent(node);
+        node.addPendingChild();
+        return newNode;
     }
 
-    private DependencyNode findNode(Microservice service, Operation operation, DependencyNode node) {
-        if (node.getService().getName().equals(service.getName()) && node.getOperation().getName().equals(operation.getName())) {
-            // This is the node
-            return node;
+    /**
+     * Marks the operation performed by the given thread as finished. Dependencies of the operation that finish later
+     * are ignored.
+     *
+     * @param thread Thread: The thread of the finished operation
+     * @return DependencyNode: The depending node if it doesn't wait for any other dependency now, otherwise null
+     */
+    public DependencyNode completeNode(Thread thread) {
+        DependencyNode node = thread.getDependencyNode();
+        if (node == null) {
+            return null;
         }
-        for (DependencyNode nextNode : node.getNextNodes()) {
-            DependencyNode targetNode = findNode(service, operation, nextNode);
-            if (targetNode != null) {
-                return targetNode;
-            }
+        node.setFinished(true);
+
+        DependencyNode parent = node.getParent();
+        node.setParent(null);
+        if (parent == null || parent.isFinished()) {
+            return null;
+        }
+        if (parent.removePendingChild() > 0) {
+            return null;
         }
-        return null;
+        return parent;
     }
 
-    public DependencyNode removeNode(Microservice service, Operation operation) {
-        DependencyNode node = findNode(service, operation, root);
-
-        if (node != null) {
-            for (DependencyNode dependingNode : node.getDependingNodes()) {
-                for (DependencyNode nextNode : node.getNextNodes()) {
-                    dependingNode.addNextNode(nextNode);
-                }
-                dependingNode.removeNextNode(node);
-            }
-        }
-        return node;
+    /**
+     * Removes all nodes, so the graph can be used for another request.
+     */
+    public void clear() {
+        root = null;
     }
 
     public boolean hasNodes() {
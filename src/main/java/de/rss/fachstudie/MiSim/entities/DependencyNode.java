@@ -2,78 +2,43 @@ package de.rss.fachstudie.MiSim.entities;
 
 import de.rss.fachstudie.MiSim.resources.Thread;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/**
+ * A <code>DependencyNode</code> is an operation of a request that was called by another operation of the same
+ * request, its parent. The thread that performs the operation holds a reference to its node, so no node has to be
+ * searched. Instead of a list of next nodes every node only counts the dependencies it still waits for.
+ */
 public class DependencyNode {
 
     private Microservice service;
     private Operation operation;
     private Thread thread;
 
-    private List<DependencyNode> nextNodes;
-    private List<DependencyNode> dependingNodes;
+    private DependencyNode parent;
+    private int pendingChildren = 0;
+    private boolean finished = false;
 
     public DependencyNode(Microservice service, Operation operation, Thread thread) {
         this.service = service;
         this.operation = operation;
         this.thread = thread;
-        nextNodes = new ArrayList<DependencyNode>();
-        dependingNodes = new ArrayList<DependencyNode>();
-    }
-
-    public void addNextNode(DependencyNode node) {
-        nextNodes.add(node);
-    }
-
-    public void addDependingNode(DependencyNode node) {
-        dependingNodes.add(node);
-    }
-
-    public boolean hasNextNodes() {
-        if (nextNodes.isEmpty()) {
-            return false;
-        }
-        return true;
-    }
-
-    public boolean hasDependingNodes() {
-        if (dependingNodes.isEmpty()) {
-            return false;
-        }
-        return true;
-    }
-
-    public DependencyNode removeNextNode() {
-        if (!nextNodes.isEmpty()) {
-            return nextNodes.remove(nextNodes.size() - 1);
-        }
-        return null;
-    }
-
-    public DependencyNode removeDependingNode() {
-        if (!dependingNodes.isEmpty()) {
-            return dependingNodes.remove(dependingNodes.size() - 1);
-        }
-        return null;
     }
 
-    public void removeNextNode(DependencyNode node) {
-        if (!nextNodes.isEmpty()) {
-            nextNodes.remove(node);
-        }
+    public void addPendingChild() {
+        pendingChildren++;
     }
 
-    public void removeDependingNode(DependencyNode node) {
-        if (!dependingNodes.isEmpty()) {
-            dependingNodes.remove(node);
+    /**
+     * @return int: The number of dependencies this operation still waits for
+     */
+    public int removePendingChild() {
+        if (pendingChildren > 0) {
+            pendingChildren--;
         }
+        return pendingChildren;
     }
 
-    public void emptyNextNodes() {
-        if (!nextNodes.isEmpty()) {
-            nextNodes = new ArrayList<DependencyNode>();
-        }
+    public boolean hasPendingChildren() {
+        return pendingChildren > 0;
     }
 
     public Microservice getService() {
@@ -100,32 +65,19 @@ public class DependencyNode {
         this.thread = thread;
     }
 
-    public List<DependencyNode> getNextNodes() {
-        return nextNodes;
-    }
-
-    public void setNextNodes(List<DependencyNode> nextNodes) {
-        this.nextNodes = nextNodes;
+    public DependencyNode getParent() {
+        return parent;
     }
 
-    public List<DependencyNode> getDependingNodes() {
-        return dependingNodes;
+    public void setParent(DependencyNode parent) {
+        this.parent = parent;
     }
 
-    public void setDependingNodes(List<DependencyNode> dependingNodes) {
-        this.dependingNodes = dependingNodes;
+    public boolean isFinished() {
+        return finished;
     }
 
-    public boolean equals(DependencyNode node) {
-        String s1 = this.getService().getName();
-        String o1 = this.getOperation().getName();
-        String s2 = node.getService().getName();
-        String o2 = node.getService().getName();
-
-        if (s1.equals(s2) && o1.equals(o2)) {
-            return true;
-        }
-
-        return false;
+    public void setFinished(boolean finished) {
+        this.finished = finished;
     }
 }
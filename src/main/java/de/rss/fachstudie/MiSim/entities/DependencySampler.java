@@ -0,0 +1,146 @@
+package de.rss.fachstudie.MiSim.entities;
+
+import desmoj.core.dist.ContDistUniform;
+
+/**
+ * The <code>DependencySampler</code> decides which dependencies of an operation are called by a request.
+ * Dependencies with a probability of 1 are always called and dependencies with a probability of 0 never. For the
+ * remaining, uncertain dependencies the joint distribution over all subsets is precomputed into an alias table when
+ * the model is initialized, so a request draws its whole set of dependencies with a single sample of the operation's
+ * random stream. Operations with too many uncertain dependencies for a table roll each of them instead.
+ *
+ * The result of <code>sample</code> is a bit mask: bit i is set if dependency i of the operation is called.
+ */
+public class DependencySampler {
+    /**
+     * The largest number of dependencies of an operation, one bit of the mask each.
+     */
+    public static final int MAX_DEPENDENCIES = 64;
+
+    /**
+     * The largest number of uncertain dependencies that is sampled with an alias table of 2^n entries.
+     */
+    private static final int MAX_TABLE_DEPENDENCIES = 10;
+
+    private ContDistUniform random;
+    private double[] probabilities;
+    private long certain = 0;
+    private int[] uncertain;
+    private double[] threshold;
+    private int[] alias;
+
+    /**
+     * @param dependencies Dependency[]: The dependencies of the operation, at most 64
+     * @param random       ContDistUniform: The random stream of the operation, uniform on [0, 1)
+     */
+    public DependencySampler(Dependency[] dependencies, ContDistUniform random) {
+        this.random = random;
+        probabilities = new double[dependencies.length];
+
+        int uncertainCount = 0;
+        for (int i = 0; i < dependencies.length; i++) {
+            probabilities[i] = dependencies[i].getProbability();
+            if (probabilities[i] >= 1)
+                certain |= 1L << i;
+            else if (probabilities[i] > 0)
+                uncertainCount++;
+        }
+
+        uncertain = new int[uncertainCount];
+        for (int i = 0, u = 0; i < dependencies.length; i++) {
+            if (probabilities[i] > 0 && probabilities[i] < 1)
+                uncertain[u++] = i;
+        }
+
+        if (uncertainCount > 0 && uncertainCount <= MAX_TABLE_DEPENDENCIES)
+            buildAliasTable();
+    }
+
+    /**
+     * @return long: The bit mask of the dependencies that are called
+     */
+    public long sample() {
+        if (uncertain.length == 0)
+            return certain;
+
+        if (alias == null) {
+            long called = certain;
+            for (int i : uncertain) {
+                if (random.sample() <= probabilities[i])
+                    called |= 1L << i;
+            }
+            return called;
+        }
+
+        double x = random.sample() * threshold.length;
+        int subset = Math.min((int) x, threshold.length - 1);
+        if (x - subset >= threshold[subset])
+            subset = alias[subset];
+        return certain | expand(subset);
+    }
+
+    /**
+     * Builds the alias table over all subsets of the uncertain dependencies (Vose's method).
+     */
+    private void buildAliasTable() {
+        int n = 1 << uncertain.length;
+        threshold = new double[n];
+        alias = new int[n];
+
+        double[] scaled = new double[n];
+        for (int subset = 0; subset < n; subset++) {
+            double p = 1;
+            for (int u = 0; u < uncertain.length; u++) {
+                double q = probabilities[uncertain[u]];
+                p *= ((subset >>> u) & 1) == 1 ? q : 1 - q;
+            }
+            scaled[subset] = p * n;
+        }
+
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int subset = 0; subset < n; subset++) {
+            if (scaled[subset] < 1)
+                small[smallSize++] = subset;
+            else
+                large[largeSize++] = subset;
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            threshold[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1)
+                small[smallSize++] = more;
+            else
+                large[largeSize++] = more;
+        }
+        // what is left over has a probability of 1 up to rounding errors
+        while (largeSize > 0) {
+            int subset = large[--largeSize];
+            threshold[subset] = 1;
+            alias[subset] = subset;
+        }
+        while (smallSize > 0) {
+            int subset = small[--smallSize];
+            threshold[subset] = 1;
+            alias[subset] = subset;
+        }
+    }
+
+    /**
+     * Maps a subset of the uncertain dependencies to the bit mask over all dependencies.
+     */
+    private long expand(int subset) {
+        long called = 0;
+        for (int u = 0; u < uncertain.length; u++) {
+            if (((subset >>> u) & 1) == 1)
+                called |= 1L << uncertain[u];
+        }
+        return called;
+    }
+}
@@ -1,32 +1,130 @@
 package de.rss.fachstudie.MiSim.entities;
 
 import de.rss.fachstudie.MiSim.resources.Thread;
-import desmoj.core.simulator.Entity;
-import desmoj.core.simulator.Model;
 
-public class MessageObject extends Entity {
+import java.util.Arrays;
+
+/**
+ * A <code>MessageObject</code> is a request that passes through the microservices. It is a plain record and not a
+ * DesmoJ entity: it is taken from the <code>RequestPool</code> and returned to it when no event and no thread refers
+ * to it anymore.
+ *
+ * id:         the number of the request, unique among all requests of the simulation
+ * references: the number of scheduled start events and unfinished threads of this request
+ */
+public class MessageObject {
+    private long id;
     private String name;
     private DependencyGraph dependencyGraph = null;
+    private int references = 0;
+
+    // the task queues this request is in: the id of the microservice and the epoch of its queue at insertion
+    private int[] taskQueueIds = new int[2];
+    private int[] taskQueueEpochs = new int[2];
+    private int taskQueueCount = 0;
 
-    public MessageObject(Model owner, String name, boolean showInTrace) {
-        super(owner, name, showInTrace);
+    public MessageObject() {
         dependencyGraph = new DependencyGraph();
     }
 
+    /**
+     * Prepares a new or recycled message object for a new request.
+     *
+     * @param id   long: The number of the request
+     * @param name String: The name of the request
+     */
+    public void init(long id, String name) {
+        this.id = id;
+        this.name = name;
+        dependencyGraph.clear();
+        references = 0;
+        taskQueueCount = 0;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void retain() {
+        references++;
+    }
+
+    /**
+     * @return boolean: True if nothing refers to this request anymore
+     */
+    public boolean release() {
+        references--;
+        return references == 0;
+    }
+
     public boolean hasDependencies() {
         return dependencyGraph.hasNodes();
     }
 
-    public DependencyNode getDependency(Microservice service, Operation operation) {
-        return dependencyGraph.getNode(service, operation);
+    public DependencyNode addDependency(Microservice s1, Operation o1, Microservice s2, Operation o2, Thread thread) {
+        return dependencyGraph.insertDependency(s1, o1, s2, o2, thread);
+    }
+
+    public DependencyNode completeDependency(Thread thread) {
+        return dependencyGraph.completeNode(thread);
+    }
+
+    /**
+     * Marks this request as inserted into the task queue of a microservice.
+     *
+     * @param id    int: The ID of the microservice
+     * @param epoch int: The current epoch of the task queue
+     * @return boolean: False if the request is already in the task queue
+     */
+    public boolean enterTaskQueue(int id, int epoch) {
+        int index = findTaskQueue(id);
+        if (index >= 0) {
+            if (taskQueueEpochs[index] == epoch) {
+                return false;
+            }
+            // the queue was emptied since, count the request again
+            taskQueueEpochs[index] = epoch;
+            return true;
+        }
+        if (taskQueueCount == taskQueueIds.length) {
+            taskQueueIds = Arrays.copyOf(taskQueueIds, taskQueueCount * 2);
+            taskQueueEpochs = Arrays.copyOf(taskQueueEpochs, taskQueueCount * 2);
+        }
+        taskQueueIds[taskQueueCount] = id;
+        taskQueueEpochs[taskQueueCount] = epoch;
+        taskQueueCount++;
+        return true;
     }
 
-    public void addDependency(Microservice s1, Operation o1, Microservice s2, Operation o2, Thread thread) {
-        dependencyGraph.insertDependency(s1, o1, s2, o2, thread);
+    /**
+     * Marks this request as removed from the task queue of a microservice.
+     *
+     * @param id    int: The ID of the microservice
+     * @param epoch int: The current epoch of the task queue
+     * @return boolean: False if the request is not counted in the task queue
+     */
+    public boolean leaveTaskQueue(int id, int epoch) {
+        int index = findTaskQueue(id);
+        if (index < 0) {
+            return false;
+        }
+        boolean counted = taskQueueEpochs[index] == epoch;
+        taskQueueCount--;
+        taskQueueIds[index] = taskQueueIds[taskQueueCount];
+        taskQueueEpochs[index] = taskQueueEpochs[taskQueueCount];
+        return counted;
     }
 
-    public DependencyNode removeDependency(Microservice service, Operation operation) {
-        return dependencyGraph.removeNode(service, operation);
+    /**
+     * A request is only in the task queues of the few microservices it currently uses, so this is a short scan.
+     */
+    private int findTaskQueue(int id) {
+        for (int index = 0; index < taskQueueCount; index++) {
+            if (taskQueueIds[index] == id) {
+                return index;
+            }
+        }
+        return -1;
     }
 
     public String getName() {
@@ -1,24 +1,29 @@
 package de.rss.fachstudie.MiSim.entities;
 
 import de.rss.fachstudie.MiSim.entities.patterns.Pattern;
-import de.rss.fachstudie.MiSim.models.MainModel;
-import desmoj.core.simulator.Entity;
-import desmoj.core.simulator.Model;
+import de.rss.fachstudie.MiSim.resources.CPU;
+import de.rss.fachstudie.MiSim.statistics.InstanceStatistics;
 
 /**
  * A Microservice represents a collection of services.
  * Each instance is able to call operations to another service instance.
  *
- * model:       reference to the experiment model
+ * The architecture model is parsed into one Microservice per service. Its instances are small records that only hold
+ * their own state and refer to the shared <code>ServiceTemplate</code> of the service for everything else.
+ *
+ * template:    the compiled description of the service, null for the parsed description itself
  * id:          internal unique number to identify a service
  * sid:         service id (maps to the number of existing instances)
  * name:        the given name of the service, defined by the input
  * CPU:         the computing power a microservice has available
  * instances:   number of instances a service can create
  * operations:  an array of dependent operations
+ * cpu:         the cpu of this instance
+ * statistics:  the statistics recorded for this instance
+ * loadBalancer: the strategy that selects the instance of this service, defined by the input
  */
-public class Microservice extends Entity{
-    private MainModel model;
+public class Microservice {
+    private ServiceTemplate template;
     private boolean killed = false;
     private int id;
     private int sid;
@@ -27,14 +32,30 @@ public class Microservice extends Entity{
     private int instances = 0;
     private Pattern[] spatterns = null;
     private Operation[] operations;
+    private CPU cpu;
+    private InstanceStatistics statistics;
+    private String loadBalancer;
 
-    public Microservice(Model owner, String name, boolean showInTrace){
-        super(owner, name , showInTrace);
-
-        this.model = (MainModel) owner;
+    public Microservice() {
         spatterns = new Pattern[]{};
     }
 
+    /**
+     * Creates an instance of a microservice.
+     *
+     * @param template ServiceTemplate: The compiled description of the microservice
+     * @param sid      int: The number of the instance
+     */
+    public Microservice(ServiceTemplate template, int sid) {
+        this.template = template;
+        this.id = template.getId();
+        this.sid = sid;
+    }
+
+    public ServiceTemplate getTemplate() {
+        return template;
+    }
+
     public boolean isKilled() {
         return killed;
     }
@@ -60,6 +81,8 @@ public class Microservice extends Entity{
     }
 
     public String getName() {
+        if (template != null)
+            return template.getName();
         return name;
     }
 
@@ -68,6 +91,8 @@ public class Microservice extends Entity{
     }
 
     public Pattern[] getPatterns() {
+        if (template != null)
+            return template.getPatterns();
         if (spatterns == null) {
             spatterns = new Pattern[]{};
         }
@@ -89,10 +114,7 @@ public class Microservice extends Entity{
      * False if the pattern isn't implemented
      */
     public boolean hasPattern(String name) {
-        if (spatterns == null) {
-            spatterns = new Pattern[]{};
-        }
-        for (Pattern pattern : spatterns) {
+        for (Pattern pattern : getPatterns()) {
             if (pattern.getName().equals(name)) {
                 return true;
             }
@@ -101,10 +123,7 @@ public class Microservice extends Entity{
     }
 
     public Pattern getPattern(String name) {
-        if (spatterns == null) {
-            spatterns = new Pattern[]{};
-        }
-        for (Pattern pattern : spatterns) {
+        for (Pattern pattern : getPatterns()) {
             if (pattern.getName().equals(name))
                 return pattern;
         }
@@ -112,6 +131,8 @@ public class Microservice extends Entity{
     }
 
     public int getCapacity() {
+        if (template != null)
+            return template.getCapacity();
         return capacity;
     }
 
@@ -120,6 +141,8 @@ public class Microservice extends Entity{
     }
 
     public int getInstances() {
+        if (template != null)
+            return template.getInstances();
         return instances;
     }
 
@@ -128,11 +151,13 @@ public class Microservice extends Entity{
     }
 
     public Operation[] getOperations() {
+        if (template != null)
+            return template.getOperations();
         return operations;
     }
 
     public Operation getOperation(String name) {
-        for(Operation o : operations) {
+        for(Operation o : getOperations()) {
             if(o.getName().equals(name)) {
                 return o;
             }
@@ -143,4 +168,28 @@ public class Microservice extends Entity{
     public void setOperations(Operation[] operations) {
         this.operations = operations;
     }
+
+    public CPU getCPU() {
+        return cpu;
+    }
+
+    public void setCPU(CPU cpu) {
+        this.cpu = cpu;
+    }
+
+    public InstanceStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(InstanceStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public String getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    public void setLoadBalancer(String loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
 }
@@ -10,6 +10,7 @@ import desmoj.core.simulator.Model;
  * performs operations and uses a portion of the microservice's computing power.
  *
  * model:           reference to the experiment model
+ * id:              index of the operation within the operations of its microservice, assigned when the topology is built
  * name:            the given name of the operation, defined by the input
  * service:         name of the the owning microservice
  * pattern:         resilience pattern
@@ -17,13 +18,16 @@ import desmoj.core.simulator.Model;
  * CPU:             the needed computing power
  * probability:     the operation is only executed if a certain probability is reached
  * dependencies:    an array containing dependant operations of other services
+ * dependencySampler: decides which dependencies a request calls, created when the model is initialized
  */
 public class Operation extends Entity {
+    private int id;
     private String name = "";
     private MainModel model;
     private int demand = 0;
     private CircuitBreaker circuitBreaker = null;
     private Dependency[] dependencies = null;
+    private DependencySampler dependencySampler;
 
     public Operation(Model model, String s, boolean b) {
         super(model, s, b);
@@ -31,6 +35,14 @@ public class Operation extends Entity {
         this.model = (MainModel) model;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -62,6 +74,14 @@ public class Operation extends Entity {
         this.dependencies = operations;
     }
 
+    public DependencySampler getDependencySampler() {
+        return dependencySampler;
+    }
+
+    public void setDependencySampler(DependencySampler dependencySampler) {
+        this.dependencySampler = dependencySampler;
+    }
+
     public int getDemand() {
         return demand;
     }
@@ -0,0 +1,127 @@
+package de.rss.fachstudie.MiSim.entities;
+
+import de.rss.fachstudie.MiSim.events.StartEvent;
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.resources.Thread;
+
+import java.util.ArrayDeque;
+
+/**
+ * The <code>RequestPool</code> creates the objects that are needed for every request: message objects, threads with
+ * their stop and timeout events, and start events. If request pooling is enabled in the <code>MainModel</code>, it
+ * also recycles them. Only the events are DesmoJ components, and they are created once and scheduled again whenever
+ * their object is reused.
+ *
+ * A thread is returned by its <code>StopEvent</code>, which takes it off its cpu first, a start event after its
+ * routine. A message object is returned when its last thread or start event is. Every object is returned at most once
+ * per use. Threads of a killed instance never stop and are left to the garbage collector, together with their
+ * message objects.
+ */
+public class RequestPool {
+    private MainModel model;
+    private ArrayDeque<MessageObject> messageObjects = new ArrayDeque<>();
+    private ArrayDeque<Thread> threads = new ArrayDeque<>();
+    private ArrayDeque<StartEvent> startEvents = new ArrayDeque<>();
+    private boolean pooling;
+    private long requestCount = 0;
+
+    public RequestPool(MainModel model) {
+        this.model = model;
+        pooling = model.isRequestPooling();
+    }
+
+    /**
+     * @param name String: The name of the request
+     * @return MessageObject: A message object for a new request
+     */
+    public MessageObject obtainMessageObject(String name) {
+        MessageObject messageObject = messageObjects.poll();
+        if (messageObject == null) {
+            messageObject = new MessageObject();
+        }
+        messageObject.init(requestCount++, name);
+        return messageObject;
+    }
+
+    /**
+     * @param operation Operation: The operation the thread performs
+     * @param service   Microservice: The instance the thread runs on
+     * @param mo        MessageObject: The request
+     * @return Thread: A thread that is not known to any cpu yet
+     */
+    public Thread obtainThread(Operation operation, Microservice service, MessageObject mo) {
+        return obtainThread(operation, service, mo, model.presentTime().getTimeAsDouble());
+    }
+
+    /**
+     * @param time double: The present time, when the thread is created
+     */
+    Thread obtainThread(Operation operation, Microservice service, MessageObject mo, double time) {
+        Thread thread = threads.poll();
+        if (thread == null) {
+            thread = new Thread(model);
+        }
+        thread.init(operation.getDemand(), service, mo, operation, time);
+        mo.retain();
+        return thread;
+    }
+
+    /**
+     * @param id             int: The ID of the microservice
+     * @param operation      Operation: The operation which will be performed
+     * @param instance       Microservice: The instance which performs the operation, null to ask the load balancer
+     * @param dependencyNode DependencyNode: The node of the operation in the dependency graph of the request, or null
+     * @param mo             MessageObject: The request
+     * @return StartEvent: A start event that is not scheduled
+     */
+    public StartEvent obtainStartEvent(int id, Operation operation, Microservice instance,
+                                       DependencyNode dependencyNode, MessageObject mo) {
+        StartEvent startEvent = startEvents.poll();
+        if (startEvent == null) {
+            startEvent = new StartEvent(model, "Start Event", model.getShowStartEvent());
+        }
+        startEvent.init(id, operation, instance, dependencyNode, mo);
+        mo.retain();
+        return startEvent;
+    }
+
+    /**
+     * Returns a thread whose stop event is done and that no cpu holds anymore. A thread that has already been
+     * returned is ignored.
+     *
+     * @param thread Thread: The finished thread
+     */
+    public void release(Thread thread) {
+        MessageObject mo = thread.getMobject();
+        if (mo == null) {
+            return;
+        }
+        thread.setMobject(null);
+        thread.setService(null);
+        thread.setDependencyNode(null);
+        if (pooling) {
+            threads.push(thread);
+        }
+        release(mo);
+    }
+
+    /**
+     * Returns a start event after its routine.
+     *
+     * @param startEvent StartEvent: The start event
+     */
+    public void release(StartEvent startEvent) {
+        MessageObject mo = startEvent.getMessageObject();
+        startEvent.init(-1, null, null, null, null);
+        if (pooling) {
+            startEvents.push(startEvent);
+        }
+        release(mo);
+    }
+
+    private void release(MessageObject mo) {
+        if (mo.release() && pooling) {
+            messageObjects.push(mo);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.rss.fachstudie.MiSim.entities;
+
+import de.rss.fachstudie.MiSim.entities.patterns.Pattern;
+
+/**
+ * A <code>ServiceTemplate</code> is the compiled, immutable description of a microservice that all of its instances
+ * share. Patterns are looked up once when the template is built, so neither the creation of an instance nor a
+ * request has to search them by name.
+ *
+ * threadPoolSize:  the number of threads the thread pool computes at once, 10 if the pattern has no argument
+ * threadQueueSize: the number of threads that wait for the thread pool, 10 if the pattern has no second argument
+ */
+public class ServiceTemplate {
+    private final int id;
+    private final String name;
+    private final int capacity;
+    private final int instances;
+    private final Pattern[] patterns;
+    private final Operation[] operations;
+    private final boolean resourceLimiter;
+    private final boolean threadPool;
+    private final int threadPoolSize;
+    private final int threadQueueSize;
+
+    /**
+     * Compiles the description of a microservice from the architecture model.
+     *
+     * @param id          int: The id of the microservice
+     * @param description Microservice: The microservice as described in the architecture model
+     */
+    public ServiceTemplate(int id, Microservice description) {
+        this.id = id;
+        this.name = description.getName();
+        this.capacity = description.getCapacity();
+        this.instances = description.getInstances();
+        this.patterns = description.getPatterns().clone();
+        this.operations = description.getOperations();
+        this.resourceLimiter = description.hasPattern("Resource Limiter");
+
+        Pattern pool = description.getPattern("Thread Pool");
+        threadPool = pool != null;
+        if (pool != null && pool.getArguments().length > 0) {
+            threadPoolSize = pool.getArgument(0);
+        } else {
+            // Default
+            threadPoolSize = 10;
+        }
+        if (pool != null && pool.getArguments().length > 1) {
+            threadQueueSize = pool.getArgument(1);
+        } else {
+            // Default
+            threadQueueSize = 10;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getInstances() {
+        return instances;
+    }
+
+    public Pattern[] getPatterns() {
+        return patterns;
+    }
+
+    public Operation[] getOperations() {
+        return operations;
+    }
+
+    public boolean hasResourceLimiter() {
+        return resourceLimiter;
+    }
+
+    /**
+     * @return boolean: True if the microservice has a thread pool, which always comes with a thread queue
+     */
+    public boolean hasThreadPool() {
+        return threadPool;
+    }
+
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    public int getThreadQueueSize() {
+        return threadQueueSize;
+    }
+}
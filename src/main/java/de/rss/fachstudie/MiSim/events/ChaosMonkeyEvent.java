@@ -45,27 +45,16 @@ public class ChaosMonkeyEvent extends ExternalEvent {
     public void eventRoutine() throws SuspendExecution {
 
         for(int i = 0; i < instances; ++i) {
-            for(Microservice msEntity : model.services.get(msId)) {
-                if(!msEntity.isKilled()) {
-                    msEntity.setKilled(true);
-                    model.serviceCPU.get(msEntity.getId()).get(msEntity.getSid()).getExistingThreads().removeAll();
-                    model.serviceCPU.get(msEntity.getId()).get(msEntity.getSid()).getActiveThreads().removeAll();
-                    this.instances -= 1;
-                    break;
-                }
-            }
-        }
-
-        boolean hasServicesLeft = false;
-        for(int instance = 0; instance < model.services.get(msId).size(); ++instance) {
-            if(!model.services.get(msId).get(instance).isKilled()) {
-                hasServicesLeft = true;
+            Microservice msEntity = model.topology.getFirstLiveInstance(msId);
+            if(msEntity == null)
                 break;
-            }
+            if (model.topology.killInstance(msEntity))
+                model.recorder.removeInstance(model.topology.getSlot(msId, msEntity.getSid()));
+            this.instances -= 1;
         }
 
-        if(!hasServicesLeft) {
-            model.taskQueues.get(msId).removeAll();
+        if(model.topology.getLiveInstanceCount(msId) == 0) {
+            model.topology.getTaskQueue(msId).removeAll();
         }
 
         if(this.instances > 0) {
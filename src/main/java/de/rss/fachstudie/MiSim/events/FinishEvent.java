@@ -20,10 +20,8 @@ public class FinishEvent extends ExternalEvent {
     @Override
     public void eventRoutine() throws SuspendExecution {
         // Finish all threads in the task queue and save the response time
-        for (int id = 0; id < model.serviceCPU.size(); ++id) {
-            for (int instance = 0; instance < model.serviceCPU.get(id).size(); ++instance) {
-                model.serviceCPU.get(id).get(instance).releaseUnfinishedThreads();
-            }
+        for (int slot = 0; slot < model.topology.getInstanceCount(); ++slot) {
+            model.topology.getInstance(slot).getCPU().releaseUnfinishedThreads();
         }
     }
 }
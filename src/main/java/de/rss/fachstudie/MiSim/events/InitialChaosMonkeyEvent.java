@@ -20,7 +20,7 @@ public class InitialChaosMonkeyEvent extends ExternalEvent {
         this.time = time;
         this.msId = msId;
         this.instances = instances;
-        this.microservice = model.allMicroservices.get(msId).getName();
+        this.microservice = model.topology.getService(msId).getName();
     }
 
     public double getTime() {
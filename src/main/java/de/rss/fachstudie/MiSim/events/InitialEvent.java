@@ -2,6 +2,7 @@ package de.rss.fachstudie.MiSim.events;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.models.MainModel;
 import desmoj.core.dist.ContDistUniform;
 import desmoj.core.simulator.ExternalEvent;
@@ -18,6 +19,7 @@ public class InitialEvent extends ExternalEvent {
     private ContDistUniform timeToCreate;
     private String microservice = "";
     private String operation = "";
+    private Operation operationEntity;
     private int msId = -1;
 
     /**
@@ -37,8 +39,9 @@ public class InitialEvent extends ExternalEvent {
         model = (MainModel) owner;
         timeToCreate = new ContDistUniform(model, name, interval, interval, model.getShowInitEvent(), true);
         this.msId = msId;
-        this.microservice = model.allMicroservices.get(msId).getName();
+        this.microservice = model.topology.getService(msId).getName();
         this.operation = op;
+        this.operationEntity = model.topology.getService(msId).getOperation(op);
     }
 
     public double getInterval() {
@@ -66,13 +69,18 @@ public class InitialEvent extends ExternalEvent {
     @Override
     public void eventRoutine() throws SuspendExecution {
 
+        // Requests to a service without live instances are rejected right away
+        if (model.topology.getLiveInstanceCount(msId) == 0) {
+            schedule(new TimeSpan(timeToCreate.sample(), model.getTimeUnit()));
+            return;
+        }
+
         // Create a message object and begin event
-        MessageObject initialMessageObject = new MessageObject(model, this.getClass().getName(), model.getShowStartEvent());
-        StartEvent startEvent = new StartEvent(model,
-                "Start Event: " + microservice + "(" + operation + ")",
-                model.getShowStartEvent(), msId, operation);
+        MessageObject initialMessageObject = model.requests.obtainMessageObject(this.getClass().getName());
+        StartEvent startEvent = model.requests.obtainStartEvent(msId, operationEntity, null, null,
+                initialMessageObject);
 
-        startEvent.schedule(initialMessageObject, new TimeSpan(0, model.getTimeUnit()));
+        startEvent.schedule(new TimeSpan(0, model.getTimeUnit()));
 
         schedule(new TimeSpan(timeToCreate.sample(), model.getTimeUnit()));
     }
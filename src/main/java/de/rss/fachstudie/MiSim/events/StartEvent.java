@@ -2,64 +2,83 @@ package de.rss.fachstudie.MiSim.events;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import de.rss.fachstudie.MiSim.entities.Dependency;
+import de.rss.fachstudie.MiSim.entities.DependencyNode;
 import de.rss.fachstudie.MiSim.entities.MessageObject;
 import de.rss.fachstudie.MiSim.entities.Microservice;
 import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.resources.CPU;
+import de.rss.fachstudie.MiSim.resources.TaskQueue;
 import de.rss.fachstudie.MiSim.resources.Thread;
-import desmoj.core.dist.ContDistUniform;
-import desmoj.core.simulator.Event;
+import de.rss.fachstudie.MiSim.statistics.InstanceStatistics;
+import de.rss.fachstudie.MiSim.statistics.Metric;
+import desmoj.core.simulator.ExternalEvent;
 import desmoj.core.simulator.Model;
 import desmoj.core.simulator.TimeSpan;
 
-import java.util.List;
-
 /**
  * The <code>StartEvent</code> gets a <code>MessageObject</code> and schedules a <code>TimeSpan</code>
  * during which an operation of a microservice is performed on one of that microservices instances.
+ * Start events are taken from the <code>RequestPool</code> and returned to it after their routine.
  */
-public class StartEvent extends Event<MessageObject> {
+public class StartEvent extends ExternalEvent {
     private MainModel model;
     private int id;
-    private String operation;
+    private Operation operation;
+    private Microservice instance;
+    private DependencyNode dependencyNode;
+    private MessageObject messageObject;
 
     /**
      * Instantiates a <code>StartEvent</code> which schedules a <code>TimeSpan</code> during which an operation of a
-     * microservice is performed on one of that microservices instances.
+     * microservice is performed on one of that microservices instances. Use <code>init</code> before scheduling it.
      *
      * @param owner       Model: The model which owns this event
      * @param name        String: The name of this event
      * @param showInTrace boolean: Whether or not this event should be displayed in the trace
-     * @param id          int: The ID of the microservice
-     * @param operation   String: The name of the operation which will be performed
      */
-    public StartEvent(Model owner, String name, boolean showInTrace, int id, String operation) {
+    public StartEvent(Model owner, String name, boolean showInTrace) {
         super(owner, name, showInTrace);
 
+        model = (MainModel) owner;
+    }
+
+    /**
+     * Prepares the event for an operation of a request.
+     *
+     * @param id             int: The ID of the microservice
+     * @param operation      Operation: The operation which will be performed
+     * @param instance       Microservice: The instance which performs the operation, null to ask the load balancer
+     * @param dependencyNode DependencyNode: The node of the operation in the dependency graph of the request, or null
+     * @param messageObject  MessageObject: The request
+     */
+    public void init(int id, Operation operation, Microservice instance, DependencyNode dependencyNode,
+                     MessageObject messageObject) {
         this.id = id;
         this.operation = operation;
-        model = (MainModel) owner;
+        this.instance = instance;
+        this.dependencyNode = dependencyNode;
+        this.messageObject = messageObject;
+    }
+
+    public MessageObject getMessageObject() {
+        return messageObject;
     }
 
     /**
-     * Chooses the service with most resources and space available.
+     * Chooses an instance of the microservice with its load balancer.
      *
-     * @param id: The ID of the microservice
+     * @param id:            The ID of the microservice
+     * @param messageObject: The request which is going to be performed
      * @return Mircroservice
      */
-    private Microservice getServiceEntity(int id) {
-        double min = Double.POSITIVE_INFINITY;
-        int i = 0;
-        for (int instance = 0; instance < model.services.get(id).size(); ++instance) {
-            if (!model.services.get(id).get(instance).isKilled()) {
-                if (model.serviceCPU.get(id).get(instance).getExistingThreads().size() < min) {
-                    min = model.serviceCPU.get(id).get(instance).getExistingThreads().size();
-                    i = instance;
-                }
-            }
+    private Microservice getServiceEntity(int id, MessageObject messageObject) {
+        Microservice selected = model.topology.getLoadBalancer(id).select(messageObject);
+        if (selected == null) {
+            // no instance is alive, the request fails on the first instance
+            return model.topology.getInstance(id, 0);
         }
-        //model.log("retuning instance: " + i);
-        return model.services.get(id).get(i);
+        return selected;
     }
 
     /**
@@ -67,112 +86,107 @@ public class StartEvent extends Event<MessageObject> {
      * perfom this <code>Operation</code>, creates a <code>Thread</code> on that instance for the <code>Operation</code>
      * and schedules the <code>StopEvent</code> of that <code>Operation</code>
      *
-     * @param messageObject MessageObject
      * @throws SuspendExecution
      */
     @Override
-    public void eventRoutine(MessageObject messageObject) throws SuspendExecution {
+    public void eventRoutine() throws SuspendExecution {
 
-        Operation op = model.allMicroservices.get(id).getOperation(operation);
-        Microservice msEntity = getServiceEntity(id);
-        StopEvent msEndEvent = new StopEvent(model, "", model.getShowStopEvent(), id, operation);
-        Thread thread = new Thread(model, "", false, op.getDemand(), msEndEvent, msEntity, messageObject, op);
+        Microservice service = model.topology.getService(id);
+        Operation op = operation;
+        Microservice msEntity = instance;
+        if (msEntity == null || !model.topology.isAlive(id, msEntity.getSid())) {
+            msEntity = getServiceEntity(id, messageObject);
+        }
+        CPU cpu = msEntity.getCPU();
+        InstanceStatistics statistics = msEntity.getStatistics();
+        TaskQueue taskQueue = model.topology.getTaskQueue(id);
 
-        boolean hasResourceLimiter = msEntity.hasPattern("Resource Limiter");
+        boolean hasResourceLimiter = msEntity.getTemplate().hasResourceLimiter();
         int resourceLimit = Integer.MAX_VALUE;
-        double ratio = (model.services.get(id).get(0).getCapacity() / model.services.get(id).get(0).getOperation(operation).getDemand());
+        double ratio = (service.getCapacity() / op.getDemand());
 
         if (ratio >= 1) {
-            resourceLimit = model.services.get(id).size() *
-                    (model.services.get(id).get(0).getCapacity() / model.services.get(id).get(0).getOperation(operation).getDemand());
+            resourceLimit = model.topology.getInstanceCount(id) * (service.getCapacity() / op.getDemand());
         } else {
-            resourceLimit = model.services.get(id).size();
+            resourceLimit = model.topology.getInstanceCount(id);
         }
 
-        model.serviceCPU.get(id).get(msEntity.getSid()).checkCircuitBreakers();
+        if (!hasResourceLimiter || taskQueue.size() < resourceLimit) {
 
-        if (!hasResourceLimiter || model.taskQueues.get(id).size() < resourceLimit) {
-
-            model.taskQueues.get(id).insert(messageObject);
+            Thread thread = model.requests.obtainThread(op, msEntity, messageObject);
+            if (dependencyNode != null) {
+                dependencyNode.setThread(thread);
+                thread.setDependencyNode(dependencyNode);
+            }
 
+            taskQueue.insert(messageObject);
 
-            boolean availServices = false;
-            for (Microservice m : model.services.get(id)) {
-                if (!m.isKilled()) {
-                    availServices = true;
-                    break;
-                }
-            }
 
             // Check if there are available services
-            if (availServices) {
+            if (model.topology.getLiveInstanceCount(id) > 0) {
 
-                if (!model.serviceCPU.get(id).get(msEntity.getSid()).getOpenCircuits().contains(operation)) {
-                    model.serviceCPU.get(id).get(msEntity.getSid()).addExistingThread(thread, op);
+                if (!cpu.isCircuitOpen(op)) {
+                    cpu.addExistingThread(thread, op);
 
                     // Are there dependant operations
                     if (op.getDependencies().length > 0) {
 
-                        for (Dependency dependency : op.getDependencies()) {
-
-                            // Roll probability
-                            ContDistUniform prob = new ContDistUniform(model, "", 0.0, 1.0, false, false);
-                            double probability = dependency.getProbability();
+                        // Roll probabilities
+                        long called = op.getDependencySampler().sample();
+                        Dependency[] dependencies = op.getDependencies();
 
-                            if (prob.sample() <= probability) {
+                        for (int d = 0; d < dependencies.length; d++) {
+                            Dependency dependency = dependencies[d];
+                            int nextServiceId = dependency.getServiceId();
 
-                                String nextOperation = dependency.getOperation();
-                                String nextService = dependency.getService();
+                            // A dependency on a service without live instances fails immediately, like a dependency
+                            // that is not called
+                            if (((called >>> d) & 1) == 1 && model.topology.getLiveInstanceCount(nextServiceId) > 0) {
 
-                                int nextServiceId = model.getIdByName(nextService);
+                                Operation nextOperation = dependency.getTargetOperation();
 
                                 // Add Dependency to messageObject
-                                Microservice nextServiceEntity = getServiceEntity(nextServiceId);
-                                Operation nextOperationEntity = model.allMicroservices.get(nextServiceId).getOperation(nextOperation);
-                                messageObject.addDependency(msEntity, op, nextServiceEntity, nextOperationEntity, thread);
-
-                                // Immediately start dependant operation
-                                StartEvent nextEvent = new StartEvent(model, "", model.getShowStartEvent(), nextServiceId, nextOperation);
-                                nextEvent.schedule(messageObject, new TimeSpan(0, model.getTimeUnit()));
+                                Microservice nextServiceEntity = getServiceEntity(nextServiceId, messageObject);
+                                DependencyNode nextNode = messageObject.addDependency(msEntity, op, nextServiceEntity,
+                                        nextOperation, thread);
+
+                                // Immediately start dependant operation on the selected instance
+                                StartEvent nextEvent = model.requests.obtainStartEvent(nextServiceId, nextOperation,
+                                        nextServiceEntity, nextNode, messageObject);
+                                nextEvent.schedule(new TimeSpan(0, model.getTimeUnit()));
                             } else {
                                 // add thread to cpu
-                                model.serviceCPU.get(id).get(msEntity.getSid()).addThread(thread, op);
+                                cpu.addThread(thread, op);
                             }
                         }
                     } else {
                         // add thread to cpu
-                        model.serviceCPU.get(id).get(msEntity.getSid()).addThread(thread, op);
+                        cpu.addThread(thread, op);
                     }
                 } else {
                     // fail fast
-                    double last = 0;
-                    List<Double> values = model.circuitBreakerStatistics.get(id).get(thread.getSid()).getDataValues();
-                    if (values != null)
-                        last = values.get(values.size() - 1);
-                    model.circuitBreakerStatistics.get(id).get(thread.getSid()).update(last + 1);
+                    statistics.increase(Metric.CIRCUIT_BREAKER);
 
-                    msEndEvent.schedule(msEntity, thread, messageObject);
+                    thread.scheduleEndEvent();
                 }
             } else {
-                msEndEvent.schedule(msEntity, thread, messageObject);
+                thread.scheduleEndEvent();
             }
         } else {
             // Resource Limiter
-            double last = 0;
-            List<Double> values = model.resourceLimiterStatistics.get(id).get(msEntity.getSid()).getDataValues();
-            if (values != null)
-                last = values.get(values.size() - 1);
-            model.resourceLimiterStatistics.get(id).get(msEntity.getSid()).update(last + 1);
+            statistics.increase(Metric.RESOURCE_LIMITER);
         }
 
         // Statistics
         // CPU
-        model.cpuStatistics.get(id).get(msEntity.getSid()).update(model.serviceCPU.get(id).get(msEntity.getSid()).getMeanUsage(model.getStatisticChunks()));
-        //model.serviceCPU.get(id).get(msEntity.getSid()).collectUsage();
+        statistics.update(Metric.CPU, cpu.getMeanUsage(model.getStatisticChunks()));
+        //cpu.collectUsage();
         // Thread
-        model.activeThreadStatistics.get(id).get(msEntity.getSid()).update(model.serviceCPU.get(id).get(msEntity.getSid()).getActiveThreads().size());
-        model.existingThreadStatistics.get(id).get(msEntity.getSid()).update(model.serviceCPU.get(id).get(msEntity.getSid()).getExistingThreads().size());
+        statistics.update(Metric.ACTIVE_THREADS, cpu.getActiveThreadCount());
+        statistics.update(Metric.EXISTING_THREADS, cpu.getExistingThreads().size());
         // Task Queue
-        model.taskQueueStatistics.get(id).update(model.taskQueues.get(id).size());
+        model.recorder.record(Metric.TASK_QUEUE, id, taskQueue.size());
+
+        model.requests.release(this);
     }
 }
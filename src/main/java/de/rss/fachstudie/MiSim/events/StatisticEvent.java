@@ -1,7 +1,11 @@
 package de.rss.fachstudie.MiSim.events;
 
 import co.paralleluniverse.fibers.SuspendExecution;
+import de.rss.fachstudie.MiSim.entities.Microservice;
 import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.resources.CPU;
+import de.rss.fachstudie.MiSim.statistics.InstanceStatistics;
+import de.rss.fachstudie.MiSim.statistics.Metric;
 import desmoj.core.simulator.ExternalEvent;
 import desmoj.core.simulator.Model;
 import desmoj.core.simulator.TimeSpan;
@@ -19,12 +23,24 @@ public class StatisticEvent extends ExternalEvent {
 
     @Override
     public void eventRoutine() throws SuspendExecution {
-        for (int id = 0; id < model.serviceCPU.size(); ++id) {
-            for (int instance = 0; instance < model.serviceCPU.get(id).size(); ++instance) {
-                model.serviceCPU.get(id).get(instance).collectUsage();
-                model.cpuStatistics.get(id).get(instance).update(model.serviceCPU.get(id).get(instance).getMeanUsage(model.getStatisticChunks()));
+        // Only visit instances that were active since the last interval
+        for (int slot : model.activity.drain()) {
+            Microservice instance = model.topology.getInstance(slot);
+            CPU cpu = instance.getCPU();
+            InstanceStatistics statistics = instance.getStatistics();
+
+            cpu.collectUsage();
+            double usage = cpu.getMeanUsage(model.getStatisticChunks());
+            statistics.update(Metric.CPU, usage);
+            statistics.update(Metric.WORK_DONE, cpu.getWorkDone());
+            statistics.recordCounters();
+
+            // An instance stays active until its usage window is idle, afterwards its values don't change
+            if (cpu.getActiveThreadCount() > 0 || usage > 0) {
+                statistics.markActive();
             }
         }
+        model.recorder.recordServices();
         schedule(new TimeSpan(timeInterval, model.getTimeUnit()));
     }
 }
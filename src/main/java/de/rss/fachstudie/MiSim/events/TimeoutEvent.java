@@ -0,0 +1,38 @@
+package de.rss.fachstudie.MiSim.events;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import de.rss.fachstudie.MiSim.resources.Thread;
+import desmoj.core.simulator.ExternalEvent;
+import desmoj.core.simulator.Model;
+
+/**
+ * A <code>TimeoutEvent</code> is scheduled for every thread of an operation with a circuit breaker. It fires when the
+ * timeout of the circuit breaker has elapsed and is cancelled when the thread finishes before.
+ * Each thread owns its timeout event, so it is reused together with the thread.
+ */
+public class TimeoutEvent extends ExternalEvent {
+    private Thread thread;
+
+    /**
+     * @param owner       Model: The model that owns this event
+     * @param name        String: The name of this event
+     * @param showInTrace boolean: Whether or not this event should appear in the trace
+     * @param thread      Thread: The thread that can time out
+     */
+    public TimeoutEvent(Model owner, String name, boolean showInTrace, Thread thread) {
+        super(owner, name, showInTrace);
+
+        this.thread = thread;
+    }
+
+    /**
+     * The <code>eventRoutine</code> of the <code>TimeoutEvent</code>.
+     * Lets the cpu of the thread's instance count the failure and end the thread.
+     *
+     * @throws SuspendExecution
+     */
+    @Override
+    public void eventRoutine() throws SuspendExecution {
+        thread.getService().getCPU().timeout(thread);
+    }
+}
@@ -1,89 +1,189 @@
 package de.rss.fachstudie.MiSim.export;
 
 import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.statistics.SeriesBuffer;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 /**
  * A <code>DataChart</code> is a chart with x and y values.
+ * The series are kept as primitive columns and only written out when the report is streamed.
+ * A lazy chart only writes its options into the report, its series are written into chunks which the report loads
+ * when the chart is expanded.
  */
 public class DataChart {
+    private MainModel model;
+    private String chartType;
     private String chartId = "";
-    private String options = "";
+    private String divId = "";
+    private TreeMap<String, SeriesBuffer> series;
     private boolean empty = true;
+    private List<TreeMap<String, SeriesBuffer>> chunks = null;
+    private Map<String, Integer> indices = null;
 
     /**
      * A Chart with x and y values
      *
      * @param model     Model: The model that owns this dataChart
      * @param chartId   String: The ID of this chart
-     * @param series    ThreeMap<String, TreeMap<Double, Double>>: The data that will be plotted
+     * @param series    TreeMap<String, SeriesBuffer>: The data that will be plotted
      */
-    public DataChart(MainModel model, String chartType, String chartId, TreeMap<String, TreeMap<Double, Double>> series, String legendPrefix) {
-        StringBuilder buffer = new StringBuilder();
+    public DataChart(MainModel model, String chartType, String chartId, TreeMap<String, SeriesBuffer> series, String legendPrefix) {
+        this.model = model;
+        this.chartType = chartType;
         this.chartId = chartId;
-        this.options = "chart:{type:'" + chartType + "'},title:{text:'" + chartId + "'}"
-                + ",legend:{enabled:true},xAxis:{min:0,max:" + model.getSimulationTime()
-                + "},colors:colors(" + series.keySet().size() + "),series:[ ";
-        int index = 0;
+        this.divId = chartId.replace(" ", "_");
+        this.series = series;
 
-        for (String mapkey : series.keySet()) {
-            if (series.get(mapkey).size() > 1)
+        for (SeriesBuffer buffer : series.values()) {
+            if (buffer.size() > 1)
                 empty = false;
+        }
+    }
 
-            buffer.append("{name:'").append(mapkey).append("',index:").append(index).append(",dataGrouping:{enabled: false},data:[");
-
-            TreeMap<Double, Double> map = series.get(mapkey);
-
-            if (map.keySet().size() == 0)
-                map.put(model.getSimulationTime(), 0.0);
+    public String getDivId() {
+        return divId;
+    }
 
-            for(double x : map.keySet()) {
-                double key = Math.round(x * model.getPrecision()) / model.getPrecision();
-                String value = "[" + key + "," + Math.round(map.get(x) * model.getPrecision()) / model.getPrecision() + "],";
-                buffer.append(value);
+    /**
+     * Adds a chunk of the series, the chart becomes lazy. The chunks have to cover all series of the chart.
+     *
+     * @param chunk TreeMap<String, SeriesBuffer>: Some of the series of the chart, usually those of one microservice
+     */
+    public void addChunk(TreeMap<String, SeriesBuffer> chunk) {
+        if (chunks == null) {
+            chunks = new ArrayList<>();
+            // the index of a series in the whole chart keeps its color when it is loaded from a chunk
+            indices = new HashMap<>();
+            for (String name : series.keySet()) {
+                indices.put(name, indices.size());
             }
-            buffer = buffer.delete(buffer.length() - 1, buffer.length()).append("]},");
-            index++;
         }
-        if(series.keySet().size() > 0)
-            options += buffer.delete(buffer.length() - 1, buffer.length()) + "]";
-        else
-            options += "]";
+        if (chunk != null && !chunk.isEmpty())
+            chunks.add(chunk);
     }
 
     /**
-     * Creates the div embedding the chart.
+     * @return boolean: True if no series has more than one value, an empty chart is left out of the report
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean isLazy() {
+        return chunks != null;
+    }
+
+    public int getChunkCount() {
+        return chunks == null ? 0 : chunks.size();
+    }
+
+    /**
+     * Writes the div embedding the chart.
      *
-     * @return String
+     * @param writer ReportWriter: The report
      */
-    public String printDiv() {
+    public void writeDiv(ReportWriter writer) throws IOException {
         if (!empty)
-            return "document.getElementById('chart-container').innerHTML += \"<div id='" + chartId.replace(" ", "_") + "' class='stat-chart'></div>"
-                    + "<button onclick=\\\"toggleLines('" + chartId.replace(" ", "_") + "');\\\">Toggle Visibility</button>"
-                    + "<button onclick=\\\"unsmoothYAxis('" + chartId.replace(" ", "_") + "');\\\">Unsmooth YAxis</button>"
-                    + "<button onclick=\\\"smoothYAxis('" + chartId.replace(" ", "_") + "');\\\">Smooth YAxis</button>\"\n";
-        return "";
+            writer.write("document.getElementById('chart-container').innerHTML += \"<div id='" + divId + "' class='stat-chart'>"
+                    + (isLazy() ? "<span onclick=\\\"expandChart(this, '" + divId + "');\\\">&#x25BA;</span>" + chartId : "") + "</div>"
+                    + "<button onclick=\\\"toggleLines('" + divId + "');\\\">Toggle Visibility</button>"
+                    + "<button onclick=\\\"unsmoothYAxis('" + divId + "');\\\">Unsmooth YAxis</button>"
+                    + "<button onclick=\\\"smoothYAxis('" + divId + "');\\\">Smooth YAxis</button>\"\n");
     }
 
     /**
      * A standart chart plots lines for each series
      *
-     * @return String: js code for the chart
+     * @param writer ReportWriter: The report the js code for the chart is written to
      */
-    public String printChart() {
-        if (!empty)
-            return "Highcharts.stockChart('" + chartId.replace(" ", "_") + "', {" + options + "});\n";
-        return "";
+    public void writeChart(ReportWriter writer) throws IOException {
+        writeStockChart(writer);
     }
 
     /**
-     * A stock chart is able to compare multiple values and has a scrollbar
-     * @return String: js code for the chart
+     * A stock chart is able to compare multiple values and has a scrollbar. A lazy chart is only registered and
+     * drawn once its chunks are loaded.
+     *
+     * @param writer ReportWriter: The report the js code for the chart is written to
      */
-    public String printStockChart() {
-        if (!empty)
-            return "Highcharts.stockChart('" + chartId.replace(" ", "_") + "', {" + options + "});\n";
-        return "";
+    public void writeStockChart(ReportWriter writer) throws IOException {
+        if (empty)
+            return;
+
+        writer.write(isLazy() ? "lazyStockChart('" : "Highcharts.stockChart('").write(divId).write("', {")
+                .write("chart:{type:'").write(chartType).write("'},title:{text:'").write(chartId).write("'}")
+                .write(",legend:{enabled:true},xAxis:{min:0,max:").write(model.getSimulationTime())
+                .write("},colors:colors(").write(series.size()).write("),series:[");
+
+        if (!isLazy()) {
+            int index = 0;
+            for (Map.Entry<String, SeriesBuffer> entry : series.entrySet()) {
+                if (index > 0)
+                    writer.write(',');
+                writer.write("{name:'").write(entry.getKey()).write("',index:").write(index)
+                        .write(",dataGrouping:{enabled: false},data:[");
+
+                SeriesBuffer buffer = entry.getValue();
+                if (buffer.size() == 0)
+                    writer.write('[').write(model.getSimulationTime()).write(",0]");
+                for (int i = 0; i < buffer.size(); i++) {
+                    if (i > 0)
+                        writer.write(',');
+                    writer.write('[').write(buffer.getTime(i)).write(',').write(buffer.getValue(i)).write(']');
+                }
+                writer.write("]}");
+                index++;
+            }
+        }
+        writer.write("]});\n");
+    }
+
+    /**
+     * Writes a chunk of a lazy chart. The times are written as differences to the previous time in steps of the
+     * precision, which keeps them short for series with a fixed interval.
+     *
+     * @param writer ReportWriter: The file of the chunk
+     * @param chunk  int: The number of the chunk, from 0 to <code>getChunkCount()</code> - 1
+     */
+    public void writeChunk(ReportWriter writer, int chunk) throws IOException {
+        double precision = model.getPrecision();
+        writer.write("reportChunk('").write(divId).write("',").write(Math.round(precision)).write(",[");
+        boolean first = true;
+        for (Map.Entry<String, SeriesBuffer> entry : chunks.get(chunk).entrySet()) {
+            if (!first)
+                writer.write(',');
+            first = false;
+            Integer index = indices.get(entry.getKey());
+            writer.write("{name:'").write(entry.getKey()).write("',index:").write(index == null ? 0 : index);
+
+            SeriesBuffer buffer = entry.getValue();
+            writer.write(",t:[");
+            if (buffer.size() == 0)
+                writer.write(Math.round(model.getSimulationTime() * precision));
+            long last = 0;
+            for (int i = 0; i < buffer.size(); i++) {
+                long time = Math.round(buffer.getTime(i) * precision);
+                if (i > 0)
+                    writer.write(',');
+                writer.write(time - last);
+                last = time;
+            }
+            writer.write("],y:[");
+            if (buffer.size() == 0)
+                writer.write('0');
+            for (int i = 0; i < buffer.size(); i++) {
+                if (i > 0)
+                    writer.write(',');
+                writer.write(buffer.getValue(i));
+            }
+            writer.write("]}");
+        }
+        writer.write("]);\n");
     }
 }
@@ -6,7 +6,6 @@ import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.models.MainModel;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -16,25 +15,25 @@ import java.util.List;
 public class DependecyGraph {
     private MainModel model;
     private List<Integer> nodes;
-    private HashMap<Integer, Microservice> microservices;
+    private Microservice[] microservices;
 
     /**
      * Instantiates <code>DependencyGraph</code>.
      *
      * @param model         MainModel: The model which owns this DependencyGraph
-     * @param microservices HashMap<Integer, Microservice>
+     * @param microservices Microservice[]: The microservices, indexed by their ID
      * @param id            int: The ID of this DependencyGraph
      */
-    public DependecyGraph(MainModel model, HashMap<Integer, Microservice> microservices, int id) {
+    public DependecyGraph(MainModel model, Microservice[] microservices, int id) {
         this.model = model;
         this.microservices = microservices;
         this.nodes = new ArrayList<>();
     }
 
     public int getIdByName(String name){
-        for(int i = 0; i < microservices.size() ; i ++){
-            if(name.equals(microservices.get(i).getName())){
-                return microservices.get(i).getId();
+        for(int i = 0; i < microservices.length ; i ++){
+            if(name.equals(microservices[i].getName())){
+                return microservices[i].getId();
             }
         }
         return -1;
@@ -70,22 +69,22 @@ public class DependecyGraph {
     private String printNodes() {
         StringBuilder json = new StringBuilder();
         nodes = new ArrayList<>();
-        for(Integer id : microservices.keySet()) {
+        for(int id = 0; id < microservices.length; id++) {
             if(!nodes.contains(id)) {
                 StringBuilder labels = new StringBuilder();
-                for (Operation op : microservices.get(id).getOperations()) {
+                for (Operation op : microservices[id].getOperations()) {
                     labels.append("'").append(op.getName()).append("',");
                 }
                 nodes.add(id);
 
-                int instanceLimit = microservices.get(id).getInstances();
+                int instanceLimit = microservices[id].getInstances();
                 if(model.getReport().equals("minimalistic")) {
-                    instanceLimit = (microservices.get(id).getInstances() < 10) ? microservices.get(id).getInstances() : 10;
+                    instanceLimit = (microservices[id].getInstances() < 10) ? microservices[id].getInstances() : 10;
                 }
                 for(int i = 0; i < instanceLimit; ++i) {
-                    json.append("{name:'").append(microservices.get(id).getName())
+                    json.append("{name:'").append(microservices[id].getName())
                             .append("',id:")
-                            .append(id + microservices.get(id).getInstances() + microservices.keySet().size() * i)
+                            .append(id + microservices[id].getInstances() + microservices.length * i)
                             .append(",labels:[")
                             .append(labels.substring(0, labels.length() - 1))
                             .append("],group:")
@@ -104,17 +103,17 @@ public class DependecyGraph {
     private String printLinks() {
         StringBuilder json = new StringBuilder();
         nodes = new ArrayList<>();
-        for(Integer id : microservices.keySet()) {
+        for(int id = 0; id < microservices.length; id++) {
 
-            int instanceLimit = microservices.get(id).getInstances();
+            int instanceLimit = microservices[id].getInstances();
             if(model.getReport().equals("minimalistic")) {
-                instanceLimit = (microservices.get(id).getInstances() < 10) ? microservices.get(id).getInstances() : 10;
+                instanceLimit = (microservices[id].getInstances() < 10) ? microservices[id].getInstances() : 10;
             }
 
             if(!nodes.contains(id)) {
                 nodes.add(id);
                 StringBuilder labels = new StringBuilder();
-                for (Operation op : microservices.get(id).getOperations()) {
+                for (Operation op : microservices[id].getOperations()) {
                     labels.append("'").append(op.getName()).append("',");
                     for (Dependency depService : op.getDependencies()) {
                         int depId = getIdByName(depService.getService());
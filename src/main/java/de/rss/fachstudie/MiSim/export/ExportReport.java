@@ -1,74 +1,110 @@
 package de.rss.fachstudie.MiSim.export;
 
-import de.rss.fachstudie.MiSim.entities.Microservice;
+import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.statistics.Aggregate;
+import de.rss.fachstudie.MiSim.statistics.LatencyHistogram;
+import de.rss.fachstudie.MiSim.statistics.Metric;
+import de.rss.fachstudie.MiSim.statistics.MetricsRecorder;
+import de.rss.fachstudie.MiSim.statistics.SeriesBuffer;
+import de.rss.fachstudie.MiSim.statistics.ServiceAggregates;
+import de.rss.fachstudie.MiSim.statistics.SeriesSummary;
 import de.rss.fachstudie.MiSim.utils.ExpModelParser;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ExportReport {
+    private static final String[] SUMMARY_COLUMNS = {"Start", "Min", "Mean", "Max", "End"};
+    private static final int WORST_INSTANCES = 10;
     private MainModel model;
-    private String resourcePath = "Report/resources/";
+    private boolean minimalistic;
 
+    /**
+     * Creates the report. The dependency graph and the series, summaries and percentiles of each microservice are
+     * computed as separate tasks on a fork-join pool. The charts and tables are then streamed into one file in the
+     * order of the report, so no part of it is held in memory as text.
+     *
+     * @param model MainModel: The model after the simulation has finished
+     */
     public ExportReport(MainModel model) {
         this.model = model;
-        this.graphReport();
-        this.chartReport();
+        this.minimalistic = ExpModelParser.simulation_meta_data.get("report").equals("minimalistic");
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            ForkJoinTask<?> graph = pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    graphReport();
+                }
+            });
+            this.chartReport(pool);
+            graph.join();
+        } finally {
+            pool.shutdown();
+        }
     }
 
-    private TreeMap<String, TreeMap<Double, Double>> fillDatapoints(TreeMap<String, TreeMap<Double, Double>> series, boolean continous) {
+    /**
+     * Fills the gaps of every series with a point per datapoint interval, so the charts have a point in every
+     * interval up to the end of the simulation.
+     *
+     * @param series    TreeMap<String, SeriesBuffer>: The series, they are replaced by the filled series
+     * @param continous boolean: The gaps repeat the last value if true, otherwise they are 0
+     */
+    private void fillDatapoints(TreeMap<String, SeriesBuffer> series, boolean continous) {
+        double step = model.getSimulationTime() / model.getDatapoints();
+        double precision = model.getPrecision();
 
-        for (String mapkey : series.keySet()) {
-
-            TreeMap<Double, Double> map = series.get(mapkey);
-            TreeMap<Double, Double> newmap = new TreeMap<>();
-            double step = model.getSimulationTime() / model.getDatapoints();
+        for (Map.Entry<String, SeriesBuffer> entry : series.entrySet()) {
+            SeriesBuffer buffer = entry.getValue();
+            SeriesBuffer filled = new SeriesBuffer();
             double lastValue = 0;
             double lastIndex = 0;
-            int mapIndex = 0;
-
-            if (map.keySet().size() == 0)
-                newmap.put(0.0, 0.0);
 
-            for (double x : map.keySet()) {
-                double key = Math.round(x * model.getPrecision()) / model.getPrecision();
+            if (buffer.size() == 0)
+                filled.add(0.0, 0.0);
 
+            for (int i = 0; i < buffer.size(); i++) {
+                double x = buffer.getTime(i);
                 while (x > lastIndex) {
-                    if (continous)
-                        newmap.put(lastIndex, lastValue);
-                    else
-                        newmap.put(lastIndex, 0.0);
+                    filled.add(lastIndex, continous ? lastValue : 0.0);
                     lastIndex += step;
                 }
 
-                lastValue = Math.round(map.get(x) * model.getPrecision()) / model.getPrecision();
-                newmap.put(x, map.get(x));
-
-                if (mapIndex == map.size() - 1 && x < model.getSimulationTime()) {
-                    lastIndex = step * Math.round((x + 0.5) / step);
-                    while (lastIndex < model.getSimulationTime()) {
-                        if (continous)
-                            newmap.put(lastIndex, lastValue);
-                        else
-                            newmap.put(lastIndex, 0.0);
-                        lastIndex += step;
-                    }
+                lastValue = Math.round(buffer.getValue(i) * precision) / precision;
+                filled.add(x, buffer.getValue(i));
+            }
+
+            if (buffer.size() > 0) {
+                // continue with the first interval after the last point
+                lastIndex = step * (Math.floor(buffer.getTime(buffer.size() - 1) / step) + 1);
+                while (lastIndex < model.getSimulationTime()) {
+                    filled.add(lastIndex, continous ? lastValue : 0.0);
+                    lastIndex += step;
                 }
-                mapIndex++;
             }
-            series.put(mapkey, newmap);
+            entry.setValue(filled);
         }
-        return series;
     }
 
     private void graphReport() {
-        DependecyGraph graph = new DependecyGraph(model, model.allMicroservices, 0);
+        DependecyGraph graph = new DependecyGraph(model, model.topology.getServices(), 0);
 
         try {
             Files.write(Paths.get("./Report/js/graph.js"), graph.printGraph().getBytes());
@@ -78,117 +114,386 @@ public class ExportReport {
         }
     }
 
-    private void chartReport() {
-        TreeMap<String, TreeMap<Double, Double>> activeInstances = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> existingInstances = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> taskQueueWork = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> usedCPU = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> responseTime = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> resourceLimiter = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> circuitBreaker = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> threadPool = new TreeMap<>();
-        TreeMap<String, TreeMap<Double, Double>> threadQueue = new TreeMap<>();
-
-        for(int id = 0; id < model.services.size(); id++) {
-            String serviceName = model.services.get(id).get(0).getName();
-            int instanceLimit = model.services.get(id).get(0).getInstances();
-
-            if (ExpModelParser.simulation_meta_data.get("report").equals("minimalistic")) {
-                if(model.services.get(id).get(0).getInstances() < 10)
-                    instanceLimit = model.services.get(id).get(0).getInstances();
-                else
-                    instanceLimit = 10;
-            }
-
-            for(int instance = 0; instance < instanceLimit; instance++) {
-
-                Microservice ms = model.services.get(id).get(instance);
-                String file = ms.getName() + "_" + instance + ".txt";
-
-                activeInstances.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ActiveThreads_" + file));
-                existingInstances.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ExistingThreads_" + file));
-                usedCPU.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "CPU_" + file));
-                responseTime.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ResponseTime_" + file));
-                resourceLimiter.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ResourceLimiter_" + file));
-                threadPool.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ThreadPool_" + file));
-                threadQueue.put(ms.getName() + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "ThreadQueue_" + file));
-                circuitBreaker.put(serviceName + " #" + instance, this.getTimeSeriesWithKeys(resourcePath + "CircuitBreaker_" + file));
-            }
-            taskQueueWork.put(serviceName, this.getTimeSeriesWithKeys(resourcePath + "TaskQueue_" + serviceName + ".txt"));
-        }
-
-        fillDatapoints(activeInstances, true);
-        fillDatapoints(existingInstances, true);
-        fillDatapoints(taskQueueWork, true);
-        fillDatapoints(usedCPU, true);
-        fillDatapoints(responseTime, false);
-        fillDatapoints(resourceLimiter, true);
-        fillDatapoints(circuitBreaker, true);
-        fillDatapoints(threadPool, true);
-        fillDatapoints(threadQueue, true);
-
-        DataChart chart1 = new DataChart(model, "spline", "Active Microservice Threads", activeInstances, "");
-        DataChart chart2 = new DataChart(model, "spline", "Existing Microservice Threads", taskQueueWork, "");
-        DataChart chart4 = new DataChart(model, "spline", "Used CPU in percent", usedCPU, "");
-        DataChart chart5 = new DataChart(model, "scatter", "Thread Response Time", responseTime, "");
-        DataChart chart6 = new DataChart(model, "spline", "Tasks refused by Resource Limiter", resourceLimiter, "");
-        DataChart chart7 = new DataChart(model, "spline", "Tasks refused by Circuit Breaker", circuitBreaker, "");
-        DataChart chart8 = new DataChart(model, "spline", "Tasks refused by Thread Pool", threadPool, "");
-        DataChart chart9 = new DataChart(model, "spline", "Tasks refused by Thread Queue", threadQueue, "");
-
-        Table table1 = new Table("Active Microservice Threads", activeInstances);
-        Table table2 = new Table("Existing Microservice Threads", taskQueueWork);
-        Table table4 = new Table("Used CPU in percent", usedCPU);
-        Table table5 = new Table("Thread Response Time", responseTime);
-        Table table6 = new Table("Tasks refused by Resource Limiter", resourceLimiter);
-        Table table7 = new Table("Tasks refused by Circuit Breaker", circuitBreaker);
-        Table table8 = new Table("Tasks refused by Thread Pool", threadPool);
-        Table table9 = new Table("Tasks refused by Thread Queue", threadQueue);
-
-        String divs = chart1.printDiv() + table1.printTable()
-                + chart2.printDiv() + table2.printTable()
-                + chart4.printDiv() + table4.printTable()
-                + chart5.printDiv() + table5.printTable()
-                + chart6.printDiv() + table6.printTable()
-                + chart7.printDiv() + table7.printTable()
-                + chart8.printDiv() + table8.printTable()
-                + chart9.printDiv() + table9.printTable();
-
-        String charts = chart1.printStockChart()
-                + chart2.printStockChart()
-                + chart4.printStockChart()
-                + chart5.printStockChart()
-                + chart6.printStockChart()
-                + chart7.printStockChart()
-                + chart9.printStockChart();
-
-        String contents = divs + charts;
+    private void chartReport(ForkJoinPool pool) {
+        // One task per microservice, merged in the order of the ids. The rows are sorted by name anyway.
+        List<ForkJoinTask<ServiceReport>> services = new ArrayList<>();
+        for (int id = 0; id < model.topology.getServiceCount(); id++) {
+            final int service = id;
+            services.add(pool.submit(new Callable<ServiceReport>() {
+                @Override
+                public ServiceReport call() {
+                    return collectService(service);
+                }
+            }));
+        }
+        ServiceReport report = new ServiceReport();
+        List<ServiceReport> serviceReports = new ArrayList<>();
+        for (ForkJoinTask<ServiceReport> service : services) {
+            serviceReports.add(service.join());
+            report.merge(serviceReports.get(serviceReports.size() - 1));
+        }
 
-        try {
-            Files.write(Paths.get("./Report/js/chart.js"), contents.getBytes());
+        EnumMap<Metric, TreeMap<String, List<Double>>> summaries = report.summaries;
+        DataChart chart1 = new DataChart(model, "spline", "Active Microservice Threads", report.series.get(Metric.ACTIVE_THREADS), "");
+        DataChart chart2 = new DataChart(model, "spline", "Existing Microservice Threads", report.series.get(Metric.TASK_QUEUE), "");
+        DataChart chart4 = new DataChart(model, "spline", "Used CPU in percent", report.series.get(Metric.CPU), "");
+        DataChart chart5 = new DataChart(model, "scatter", "Thread Response Time", report.series.get(Metric.RESPONSE_TIME), "");
+        DataChart chart6 = new DataChart(model, "spline", "Tasks refused by Resource Limiter", report.series.get(Metric.RESOURCE_LIMITER), "");
+        DataChart chart7 = new DataChart(model, "spline", "Tasks refused by Circuit Breaker", report.series.get(Metric.CIRCUIT_BREAKER), "");
+        DataChart chart8 = new DataChart(model, "spline", "Tasks refused by Thread Pool", report.series.get(Metric.THREAD_POOL), "");
+        DataChart chart9 = new DataChart(model, "spline", "Tasks refused by Thread Queue", report.series.get(Metric.THREAD_QUEUE), "");
+        DataChart chart10 = new DataChart(model, "spline", "Work done", report.series.get(Metric.WORK_DONE), "");
+        DataChart chart12 = new DataChart(model, "spline", "Refused tasks per time unit", report.refusalRate, "");
+
+        Table table1 = new Table("Active Microservice Threads", SUMMARY_COLUMNS, summaries.get(Metric.ACTIVE_THREADS));
+        Table table2 = new Table("Existing Microservice Threads", SUMMARY_COLUMNS, summaries.get(Metric.TASK_QUEUE));
+        Table table4 = new Table("Used CPU in percent", SUMMARY_COLUMNS, summaries.get(Metric.CPU));
+        Table table5 = new Table("Thread Response Time", SUMMARY_COLUMNS, summaries.get(Metric.RESPONSE_TIME));
+        Table table6 = new Table("Tasks refused by Resource Limiter", SUMMARY_COLUMNS,
+                summaries.get(Metric.RESOURCE_LIMITER));
+        Table table7 = new Table("Tasks refused by Circuit Breaker", SUMMARY_COLUMNS,
+                summaries.get(Metric.CIRCUIT_BREAKER));
+        Table table8 = new Table("Tasks refused by Thread Pool", SUMMARY_COLUMNS, summaries.get(Metric.THREAD_POOL));
+        Table table9 = new Table("Tasks refused by Thread Queue", SUMMARY_COLUMNS, summaries.get(Metric.THREAD_QUEUE));
+        Table table10 = new Table("Work done", SUMMARY_COLUMNS, summaries.get(Metric.WORK_DONE));
+        Table table12 = new Table("Refused tasks per time unit", report.refusalRate);
+        Table table11 = new Table("Response Time Percentiles",
+                new String[]{"Count", "Mean", "p50", "p90", "p99", "p99.9", "Max"}, report.percentiles);
+
+        // The charts that are drawn. In the chunked report their series are split by microservice and loaded on
+        // demand
+        List<DataChart> charts = Arrays.asList(chart1, chart2, chart4, chart5, chart6, chart7, chart9, chart10, chart12);
+        if (ExpModelParser.simulation_meta_data.get("report").equals("chunked")) {
+            for (ServiceReport service : serviceReports) {
+                chart1.addChunk(service.series.get(Metric.ACTIVE_THREADS));
+                chart2.addChunk(service.series.get(Metric.TASK_QUEUE));
+                chart4.addChunk(service.series.get(Metric.CPU));
+                chart5.addChunk(service.series.get(Metric.RESPONSE_TIME));
+                chart6.addChunk(service.series.get(Metric.RESOURCE_LIMITER));
+                chart7.addChunk(service.series.get(Metric.CIRCUIT_BREAKER));
+                chart9.addChunk(service.series.get(Metric.THREAD_QUEUE));
+                chart10.addChunk(service.series.get(Metric.WORK_DONE));
+                chart12.addChunk(service.refusalRate);
+            }
+            dataReport(pool, charts);
+        }
+
+        try (ReportWriter writer = new ReportWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get("./Report/js/chart.js")), StandardCharsets.UTF_8), model.getPrecision())) {
+            // The divs and tables come first, the charts are drawn into them afterwards
+            writeDiv(writer, chart1, table1);
+            writeDiv(writer, chart2, table2);
+            writeDiv(writer, chart4, table4);
+            writeDiv(writer, chart5, table5);
+            writeDiv(writer, chart6, table6);
+            writeDiv(writer, chart7, table7);
+            writeDiv(writer, chart8, table8);
+            writeDiv(writer, chart9, table9);
+            writeDiv(writer, chart10, table10);
+            writeDiv(writer, chart12, table12);
+            table11.writeTable(writer);
+            for (DataChart chart : charts) {
+                chart.writeStockChart(writer);
+            }
             System.out.println("\nCreated chart report.");
         } catch (IOException ex) {
             System.out.println("\nCould not create chart report.");
         }
     }
 
-    private TreeMap<Double, Double> getTimeSeriesWithKeys(String filename) {
-        TreeMap<Double, Double> values = new TreeMap<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(new File(filename)))) {
-            String line;
-            int index = 0;
-            while ((line = br.readLine()) != null) {
-                if(index > 0) {
-                    String kvp[] = line.split("\\s+");
-                    if(kvp.length > 1) {
-                        values.put(Double.parseDouble(kvp[0]), Double.parseDouble(kvp[1]));
+    /**
+     * Writes the chunks of the lazy charts into <code>./Report/data</code>, one file per chart and microservice,
+     * and an index of the files for each chart. Empty charts are left out, they are not drawn.
+     *
+     * @param pool   ForkJoinPool: The pool the chunks are written on
+     * @param charts List<DataChart>: The charts of the report
+     */
+    private void dataReport(ForkJoinPool pool, List<DataChart> charts) {
+        List<DataChart> drawn = new ArrayList<>();
+        for (DataChart chart : charts) {
+            if (!chart.isEmpty())
+                drawn.add(chart);
+        }
+
+        List<ForkJoinTask<Boolean>> written = new ArrayList<>();
+        for (final DataChart chart : drawn) {
+            for (int chunk = 0; chunk < chart.getChunkCount(); chunk++) {
+                final int number = chunk;
+                written.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        Path file = Paths.get("./Report/data", chart.getDivId(), number + ".js");
+                        Files.createDirectories(file.getParent());
+                        try (ReportWriter writer = new ReportWriter(new OutputStreamWriter(Files.newOutputStream(file),
+                                StandardCharsets.UTF_8), model.getPrecision())) {
+                            chart.writeChunk(writer, number);
+                        }
+                        return true;
                     }
-                }
-                index++;
+                }));
             }
+        }
+
+        Path index = Paths.get("./Report/data/index.js");
+        try {
+            Files.createDirectories(index.getParent());
         } catch (IOException ex) {
-            System.out.println("Error while reading file: " + filename);
+            System.out.println("\nCould not create data directory.");
+        }
+        try (ReportWriter writer = new ReportWriter(new OutputStreamWriter(Files.newOutputStream(index),
+                StandardCharsets.UTF_8), model.getPrecision())) {
+            writer.write("var reportIndex = {");
+            for (int i = 0; i < drawn.size(); i++) {
+                DataChart chart = drawn.get(i);
+                if (i > 0)
+                    writer.write(',');
+                writer.write('\'').write(chart.getDivId()).write("':[");
+                for (int chunk = 0; chunk < chart.getChunkCount(); chunk++) {
+                    if (chunk > 0)
+                        writer.write(',');
+                    writer.write("'data/").write(chart.getDivId()).write('/').write(chunk).write(".js'");
+                }
+                writer.write(']');
+            }
+            writer.write("};\n");
+
+            for (ForkJoinTask<Boolean> chunk : written) {
+                chunk.join();
+            }
+            System.out.println("\nCreated data chunks.");
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("\nCould not create data chunks.");
+        }
+    }
+
+    /**
+     * Collects the series, summaries and percentiles of all instances and operations of one microservice.
+     *
+     * @param id int: The id of the microservice
+     * @return ServiceReport: The part of the report of this microservice
+     */
+    private ServiceReport collectService(int id) {
+        // The recorder aggregated everything during the simulation, the report only serialises it
+        MetricsRecorder metrics = model.recorder;
+        ServiceAggregates aggregates = metrics.getAggregates();
+        ServiceReport report = new ServiceReport();
+        String serviceName = model.topology.getService(id).getName();
+        int instances = model.topology.getInstanceCount(id);
+
+        for (Metric metric : Metric.values()) {
+            if (metric.isPerService())
+                continue;
+
+            // The aggregates of the service come first, they include the instances that are not shown
+            for (Aggregate aggregate : Aggregate.values()) {
+                SeriesSummary summary = aggregates.getSummary(metric, id, aggregate);
+                if (summary.getCount() == 0)
+                    continue;
+                String key = serviceName + " (" + aggregate.getLabel() + ")";
+                report.series.get(metric).put(key, aggregates.getSeries(metric, id, aggregate));
+                report.summaries.get(metric).put(key, getSummary(metric, summary));
+            }
+
+            double[] scores = new double[instances];
+            for (int instance = 0; instance < instances; instance++) {
+                SeriesSummary summary = metrics.getSummary(metric, model.topology.getSlot(id, instance));
+                scores[instance] = metric == Metric.RESPONSE_TIME ? summary.getMean()
+                        : summary.getTimeWeightedMean(model.getSimulationTime());
+            }
+            for (int instance : selectInstances(scores)) {
+                int slot = model.topology.getSlot(id, instance);
+                String key = serviceName + " #" + instance;
+                if (metric == Metric.RESPONSE_TIME)
+                    report.series.get(metric).put(key, metrics.getSamples(metric, slot));
+                else
+                    report.series.get(metric).put(key, metrics.getSeries(metric, slot));
+                report.summaries.get(metric).put(key, getSummary(metric, metrics.getSummary(metric, slot)));
+            }
+        }
+
+        report.refusalRate.put(serviceName + " (" + Aggregate.SUM.getLabel() + ")",
+                getRate(aggregates.getSeries(Metric.RESOURCE_LIMITER, id, Aggregate.SUM),
+                        aggregates.getSeries(Metric.CIRCUIT_BREAKER, id, Aggregate.SUM),
+                        aggregates.getSeries(Metric.THREAD_POOL, id, Aggregate.SUM),
+                        aggregates.getSeries(Metric.THREAD_QUEUE, id, Aggregate.SUM)));
+        double[] refusals = new double[instances];
+        for (int instance = 0; instance < instances; instance++) {
+            int slot = model.topology.getSlot(id, instance);
+            for (Metric metric : Metric.values()) {
+                SeriesSummary summary = metrics.getSummary(metric, slot);
+                if (metric.isCounter() && summary.getCount() > 0)
+                    refusals[instance] += summary.getLast();
+            }
+        }
+        for (int instance : selectInstances(refusals)) {
+            int slot = model.topology.getSlot(id, instance);
+            report.refusalRate.put(serviceName + " #" + instance, getRate(metrics.getSeries(Metric.RESOURCE_LIMITER, slot),
+                    metrics.getSeries(Metric.CIRCUIT_BREAKER, slot), metrics.getSeries(Metric.THREAD_POOL, slot),
+                    metrics.getSeries(Metric.THREAD_QUEUE, slot)));
+        }
+
+        report.series.get(Metric.TASK_QUEUE).put(serviceName, metrics.getSeries(Metric.TASK_QUEUE, id));
+        report.summaries.get(Metric.TASK_QUEUE).put(serviceName,
+                getSummary(Metric.TASK_QUEUE, metrics.getSummary(Metric.TASK_QUEUE, id)));
+
+        // Percentiles of the whole service, its instances and its operations
+        report.percentiles.put(serviceName, getPercentiles(metrics.getServiceLatency(id)));
+        double[] tails = new double[instances];
+        for (int instance = 0; instance < instances; instance++) {
+            tails[instance] = metrics.getInstanceLatency(model.topology.getSlot(id, instance)).getPercentile(99);
+        }
+        for (int instance : selectInstances(tails)) {
+            report.percentiles.put(serviceName + " #" + instance,
+                    getPercentiles(metrics.getInstanceLatency(model.topology.getSlot(id, instance))));
+        }
+        for (Operation operation : model.topology.getService(id).getOperations()) {
+            report.percentiles.put(serviceName + "." + operation.getName(),
+                    getPercentiles(metrics.getOperationLatency(id, operation.getId())));
+        }
+
+        for (Metric metric : Metric.values()) {
+            fillDatapoints(report.series.get(metric), metric != Metric.RESPONSE_TIME);
+        }
+        fillDatapoints(report.refusalRate, true);
+        return report;
+    }
+
+    /**
+     * Selects the instances of a microservice that are shown in the report. The minimalistic report only shows the
+     * worst instances, they are chosen with a heap bounded to <code>WORST_INSTANCES</code> entries.
+     *
+     * @param scores double[]: The score of every instance, the higher the worse
+     * @return int[]: The selected instances in ascending order
+     */
+    private int[] selectInstances(final double[] scores) {
+        if (!minimalistic || scores.length <= WORST_INSTANCES) {
+            int[] all = new int[scores.length];
+            for (int instance = 0; instance < all.length; instance++) {
+                all[instance] = instance;
+            }
+            return all;
+        }
+
+        // the head is the best of the worst instances so far, on ties the instance with the higher number
+        PriorityQueue<Integer> worst = new PriorityQueue<>(WORST_INSTANCES + 1, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int order = Double.compare(score(scores[a]), score(scores[b]));
+                return order != 0 ? order : Integer.compare(b, a);
+            }
+        });
+        for (int instance = 0; instance < scores.length; instance++) {
+            worst.offer(instance);
+            if (worst.size() > WORST_INSTANCES)
+                worst.poll();
+        }
+
+        int[] selected = new int[worst.size()];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = worst.poll();
+        }
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    /**
+     * @return double: The score, instances without values have the lowest score
+     */
+    private static double score(double value) {
+        return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+    }
+
+    /**
+     * Writes the div of a chart and its table. The table is left out together with the chart if the chart is empty.
+     *
+     * @param writer ReportWriter: The report
+     * @param chart  DataChart: The chart
+     * @param table  Table: The table of the chart
+     */
+    private void writeDiv(ReportWriter writer, DataChart chart, Table table) throws IOException {
+        if (chart.isEmpty())
+            return;
+        chart.writeDiv(writer);
+        table.writeTable(writer);
+    }
+
+    /**
+     * @param histogram LatencyHistogram: The response times
+     * @return List<Double>: count, mean, p50, p90, p99, p99.9 and max of the response times
+     */
+    private List<Double> getPercentiles(LatencyHistogram histogram) {
+        return new ArrayList<>(Arrays.asList((double) histogram.getCount(), histogram.getMean(),
+                histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99),
+                histogram.getPercentile(99.9), histogram.getMax()));
+    }
+
+    /**
+     * Derives the rate of counters per statistic interval. Counters are only recorded when they change, so the
+     * total at each interval is the last recorded value before it.
+     *
+     * @param counters SeriesBuffer...: Totals of counters by time, they are summed up
+     * @return SeriesBuffer: The increase of the counters per time unit in every statistic interval
+     */
+    private SeriesBuffer getRate(SeriesBuffer... counters) {
+        SeriesBuffer rate = new SeriesBuffer();
+        double step = model.getSimulationTime() / model.getDatapoints();
+        double lastTotal = 0;
+
+        for (int point = 1; point <= model.getDatapoints(); point++) {
+            double time = point * step;
+            double total = 0;
+            for (SeriesBuffer counter : counters) {
+                // half a step of tolerance for the rounding of the interval times
+                int index = counter.floorIndex(time + step / 2);
+                if (index >= 0)
+                    total += counter.getValue(index);
+            }
+            rate.add(time, (total - lastTotal) / step);
+            lastTotal = total;
+        }
+        return rate;
+    }
+
+    /**
+     * @param metric  Metric: The metric of the series
+     * @param summary SeriesSummary: The aggregate of the series
+     * @return List<Double>: start, min, mean, max and end of the series. Response times are averaged per thread,
+     * all other metrics over time.
+     */
+    private List<Double> getSummary(Metric metric, SeriesSummary summary) {
+        double mean;
+        if (metric == Metric.RESPONSE_TIME)
+            mean = summary.getMean();
+        else
+            mean = summary.getTimeWeightedMean(model.getSimulationTime());
+        return new ArrayList<>(Arrays.asList(summary.getFirst(), summary.getMin(), mean, summary.getMax(),
+                summary.getLast()));
+    }
+
+    /**
+     * The series, summaries and percentiles of the report by metric. Each microservice is collected into its own
+     * <code>ServiceReport</code>, which are merged afterwards.
+     */
+    private static class ServiceReport {
+        private EnumMap<Metric, TreeMap<String, SeriesBuffer>> series = new EnumMap<>(Metric.class);
+        private EnumMap<Metric, TreeMap<String, List<Double>>> summaries = new EnumMap<>(Metric.class);
+        private TreeMap<String, SeriesBuffer> refusalRate = new TreeMap<>();
+        private TreeMap<String, List<Double>> percentiles = new TreeMap<>();
+
+        ServiceReport() {
+            for (Metric metric : Metric.values()) {
+                series.put(metric, new TreeMap<String, SeriesBuffer>());
+                summaries.put(metric, new TreeMap<String, List<Double>>());
+            }
+        }
+
+        void merge(ServiceReport other) {
+            for (Metric metric : Metric.values()) {
+                series.get(metric).putAll(other.series.get(metric));
+                summaries.get(metric).putAll(other.summaries.get(metric));
+            }
+            refusalRate.putAll(other.refusalRate);
+            percentiles.putAll(other.percentiles);
         }
-        return values;
     }
 }
@@ -0,0 +1,119 @@
+package de.rss.fachstudie.MiSim.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The <code>ReportWriter</code> streams the javascript of the report into a buffered writer, so the report never
+ * has to be held in memory as one string. Numbers are rounded to the precision of the model and written digit by
+ * digit without creating strings.
+ */
+public class ReportWriter implements Closeable {
+    private Writer out;
+    private double precision;
+    private int decimals;
+    private char[] digits = new char[24];
+
+    /**
+     * @param out       Writer: The target of the report
+     * @param precision double: Numbers are rounded to 1 / precision, a power of ten
+     */
+    public ReportWriter(Writer out, double precision) {
+        this.out = new BufferedWriter(out, 1 << 16);
+        this.precision = precision;
+        this.decimals = (int) Math.round(Math.log10(precision));
+    }
+
+    public ReportWriter write(String text) throws IOException {
+        out.write(text);
+        return this;
+    }
+
+    public ReportWriter write(char c) throws IOException {
+        out.write(c);
+        return this;
+    }
+
+    /**
+     * Writes an integer.
+     *
+     * @param value long: The number
+     * @return ReportWriter: This writer
+     */
+    public ReportWriter write(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            out.write('-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        out.write(digits, position, digits.length - position);
+        return this;
+    }
+
+    /**
+     * Writes a number rounded to the precision, without trailing zeros. NaN and infinite values are written as
+     * <code>null</code>, which the charts show as a gap.
+     *
+     * @param value double: The number
+     * @return ReportWriter: This writer
+     */
+    public ReportWriter write(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.write("null");
+            return this;
+        }
+        if (Math.abs(value * precision) >= Long.MAX_VALUE / 10) {
+            // the number can't be written as a scaled long, at this size it has no digits below the precision anyway
+            out.write(Double.toString(value));
+            return this;
+        }
+        double scaled = Math.round(value * precision);
+        if (decimals < 0 || Math.abs(Math.pow(10, decimals) - precision) > 0.5) {
+            // the precision is no power of ten, fall back to the default format
+            out.write(Double.toString(scaled / precision));
+            return this;
+        }
+
+        long number = (long) scaled;
+        if (number < 0) {
+            out.write('-');
+            number = -number;
+        }
+
+        // write the digits from the right, dropping trailing zeros of the fraction
+        int position = digits.length;
+        int fraction = decimals;
+        while (fraction > 0 && number % 10 == 0) {
+            number /= 10;
+            fraction--;
+        }
+        for (int i = 0; i < fraction; i++) {
+            digits[--position] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        if (fraction > 0) {
+            digits[--position] = '.';
+        }
+        do {
+            digits[--position] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        out.write(digits, position, digits.length - position);
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,5 +1,8 @@
 package de.rss.fachstudie.MiSim.export;
 
+import de.rss.fachstudie.MiSim.statistics.SeriesBuffer;
+
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
@@ -13,96 +16,93 @@ public class Table {
 
     private TreeMap<String, List<Double>> values;
     private String header;
+    private String[] columns = {"Start", "Min", "Mean", "Max", "End"};
     private boolean empty = true;
 
     /**
      * Instantiate <code>Table</code>.
      *
      * @param header String: header of the table
-     * @param series TreeMap<String, TreeMap<Double, Double>>
+     * @param series TreeMap<String, SeriesBuffer>
      */
-    public Table(String header, TreeMap<String, TreeMap<Double, Double>> series) {
+    public Table(String header, TreeMap<String, SeriesBuffer> series) {
         values = new TreeMap<>();
         this.header = header;
 
         for(String key : series.keySet()) {
-            if (series.get(key).size() > 1)
+            SeriesBuffer entry = series.get(key);
+            if (entry.size() > 1)
                 empty = false;
 
-            TreeMap<Double, Double> entry = series.get(key);
             double start = Double.NEGATIVE_INFINITY, end = Double.NEGATIVE_INFINITY;
             double min = Double.POSITIVE_INFINITY, mean = 0, max = Double.NEGATIVE_INFINITY;
 
             if (entry.size() > 0) {
-                start = entry.firstEntry().getValue();
-                end = entry.lastEntry().getValue();
+                start = entry.getValue(0);
+                end = entry.getValue(entry.size() - 1);
             }
 
-            for (Double index : entry.keySet()) {
-                if(entry.get(index) < min) {
-                    min = entry.get(index);
+            for (int i = 0; i < entry.size(); i++) {
+                double value = entry.getValue(i);
+                if(value < min) {
+                    min = value;
                 }
-                if(entry.get(index) > max) {
-                    max = entry.get(index);
+                if(value > max) {
+                    max = value;
                 }
-                if(index > 0) {
-                    mean += entry.get(index);
+                if(entry.getTime(i) > 0) {
+                    mean += value;
                 }
             }
+            if (min == Double.POSITIVE_INFINITY || max == Double.NEGATIVE_INFINITY)
+                mean = Double.NaN;
             values.put(key, new ArrayList<>(Arrays.asList(start, min, mean / entry.size(), max, end)));
         }
     }
 
     /**
-     * Create the html code of the table
+     * Instantiate <code>Table</code> with values that are already computed.
      *
-     * @return String: html code of the table
+     * @param header  String: header of the table
+     * @param columns String[]: headers of the value columns
+     * @param values  TreeMap<String, List<Double>>: one value per column for each row
      */
-    public String printTable() {
-        String html = "";
-        StringBuilder buffer = new StringBuilder();
-        NumberFormat nf = new DecimalFormat("##.##", new DecimalFormatSymbols(Locale.ENGLISH));
-
-        String id = "table-" + header.replace(" ", "_");
-        html += "<table class='stat-table tablesorter' id='" + id + "'>"
-                + "<thead><tr><th><span onclick=\\\"toggleTable(this, '" + id + "');\\\">&#x25BA;</span>" + header + "</th>"
-                + "<th>Start</th><th>Min</th><th>Mean</th><th>Max</th><th>End</th></thead>"
-                + "<tbody class='hidden'>";
-
-        for(String entry : values.keySet()) {
-            List<Double> mmm = values.get(entry);
-            String start = "-", min = "-", mean = "-", max = "-", end = "-";
-
-            if (mmm.get(0) != Double.NEGATIVE_INFINITY)
-                start = nf.format(mmm.get(0));
-
-            if (mmm.get(1) != Double.POSITIVE_INFINITY)
-                min = nf.format(mmm.get(1));
-
-            if (mmm.get(3) != Double.NEGATIVE_INFINITY)
-                max = nf.format(mmm.get(3));
-
-            if (mmm.get(1) != Double.POSITIVE_INFINITY && mmm.get(3) != Double.NEGATIVE_INFINITY)
-                mean = nf.format(mmm.get(2));
+    public Table(String header, String[] columns, TreeMap<String, List<Double>> values) {
+        this.header = header;
+        this.columns = columns;
+        this.values = values;
+        empty = values.isEmpty();
+    }
 
-            if (mmm.get(4) != Double.NEGATIVE_INFINITY)
-                end = nf.format(mmm.get(4));
+    /**
+     * Writes the html code of the table, row by row
+     *
+     * @param writer ReportWriter: The report
+     */
+    public void writeTable(ReportWriter writer) throws IOException {
+        if (empty)
+            return;
 
-            buffer.append("<tr><td align='left'>")
-                    .append(entry).append("</td><td>")
-                    .append(start).append("</td><td>")
-                    .append(min).append("</td><td>")
-                    .append(mean).append("</td><td>")
-                    .append(max).append("</td><td>")
-                    .append(end).append("</td></tr>");
+        NumberFormat nf = new DecimalFormat("##.##", new DecimalFormatSymbols(Locale.ENGLISH));
+        String id = "table-" + header.replace(" ", "_");
+        writer.write("document.getElementById('chart-container').innerHTML += \"")
+                .write("<table class='stat-table tablesorter' id='" + id + "'>")
+                .write("<thead><tr><th><span onclick=\\\"toggleTable(this, '" + id + "');\\\">&#x25BA;</span>" + header + "</th>")
+                .write("<th>" + String.join("</th><th>", columns) + "</th></thead>")
+                .write("<tbody class='hidden'>");
+
+        for(Map.Entry<String, List<Double>> entry : values.entrySet()) {
+            writer.write("<tr><td align='left'>").write(entry.getKey()).write("</td>");
+            for (Double value : entry.getValue()) {
+                // Infinite and NaN values mark columns without data
+                if (value.isInfinite() || value.isNaN())
+                    writer.write("<td>-</td>");
+                else
+                    writer.write("<td>").write(nf.format(value)).write("</td>");
+            }
+            writer.write("</tr>");
         }
 
-        html += buffer.toString()
-                + "</tbody>"
-                + "</table>";
-
-        if (!empty)
-            return "document.getElementById('chart-container').innerHTML += \"" + html + "\"\n";
-        return "";
+        writer.write("</tbody></table>\"\n");
     }
 }
@@ -1,6 +1,12 @@
 package de.rss.fachstudie.MiSim.models;
 
-import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.balancing.ConsistentHashingBalancer;
+import de.rss.fachstudie.MiSim.balancing.LeastConnectionsBalancer;
+import de.rss.fachstudie.MiSim.balancing.LoadBalancer;
+import de.rss.fachstudie.MiSim.balancing.PowerOfTwoChoicesBalancer;
+import de.rss.fachstudie.MiSim.balancing.RandomBalancer;
+import de.rss.fachstudie.MiSim.balancing.RoundRobinBalancer;
+import de.rss.fachstudie.MiSim.entities.DependencySampler;
 import de.rss.fachstudie.MiSim.entities.Microservice;
 import de.rss.fachstudie.MiSim.events.FinishEvent;
 import de.rss.fachstudie.MiSim.events.InitialChaosMonkeyEvent;
@@ -8,17 +14,21 @@ import de.rss.fachstudie.MiSim.events.InitialEvent;
 import de.rss.fachstudie.MiSim.events.StatisticEvent;
 import de.rss.fachstudie.MiSim.export.ExportReport;
 import de.rss.fachstudie.MiSim.resources.CPU;
+import de.rss.fachstudie.MiSim.resources.TaskQueue;
+import de.rss.fachstudie.MiSim.statistics.ActivityTracker;
+import de.rss.fachstudie.MiSim.statistics.InstanceStatistics;
+import de.rss.fachstudie.MiSim.statistics.MetricsRecorder;
 import de.rss.fachstudie.MiSim.utils.ArchModelParser;
 import de.rss.fachstudie.MiSim.utils.ArchModelValidator;
 import de.rss.fachstudie.MiSim.utils.ExpModelParser;
+import de.rss.fachstudie.MiSim.entities.Operation;
+import de.rss.fachstudie.MiSim.entities.RequestPool;
+import desmoj.core.dist.ContDistUniform;
 import desmoj.core.simulator.*;
-import desmoj.core.simulator.Queue;
-import desmoj.core.statistic.TimeSeries;
 import org.apache.commons.cli.*;
 
 import java.awt.*;
 import java.io.File;
-import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,30 +44,19 @@ public class MainModel extends Model {
     private double precision        = 100000;
     private double statisticChunks = 10;
     private int seed                = 0;
+    private CPU.Scheduling cpuScheduling = CPU.Scheduling.PROCESSOR_SHARING;
+    private boolean requestPooling  = false;
     private String resourcePath = "./Report/resources/";
     private boolean showInitEvent   = true;
     private boolean showStartEvent  = true;
     private boolean showStopEvent   = true;
     private boolean showMonkeyEvent = true;
 
-    // Queues
-    public HashMap<Integer, Queue<Microservice>>    services;
-    public HashMap<Integer, Queue<MessageObject>>   taskQueues;
-    public HashMap<Integer, Microservice>           allMicroservices;
-
-    // Resources
-    public HashMap<Integer, HashMap<Integer, CPU>> serviceCPU;
-
-    // Statistics
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> activeThreadStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> existingThreadStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> cpuStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> responseStatisitcs;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> circuitBreakerStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> threadPoolStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> threadQueueStatistics;
-    public HashMap<Integer, HashMap<Integer, TimeSeries>> resourceLimiterStatistics;
-    public HashMap<Integer, TimeSeries> taskQueueStatistics;
+    // Services, instances and their resources
+    public Topology topology;
+    public MetricsRecorder recorder;
+    public ActivityTracker activity;
+    public RequestPool requests;
 
     public void  setSimulationTime(double simTime) {
         if(simTime > 0)
@@ -140,10 +139,13 @@ public class MainModel extends Model {
             model.setReport(ExpModelParser.simulation_meta_data.get("report"));
             model.setDatapoints(Integer.parseInt(ExpModelParser.simulation_meta_data.get("datapoints")));
             model.setSeed(Integer.parseInt(ExpModelParser.simulation_meta_data.get("seed")));
+            model.setCpuScheduling(ExpModelParser.simulation_meta_data.get("cpu_scheduling"));
+            model.setRequestPooling(ExpModelParser.simulation_meta_data.get("request_pooling"));
 
             Experiment exp = new Experiment(ExpModelParser.simulation_meta_data.get("experiment_name"));
-            model.connectToExperiment(exp);
+            // seed the experiment before the model creates its random streams in init()
             exp.setSeedGenerator(model.getSeed());
+            model.connectToExperiment(exp);
             exp.setShowProgressBarAutoclose(true);
             exp.setShowProgressBar(cmd.hasOption("p"));
             exp.stop(new TimeInstant(model.getSimulationTime(), model.getTimeUnit()));
@@ -161,6 +163,7 @@ public class MainModel extends Model {
 
             //exp.report();
             exp.finish();
+            model.recorder.close();
 
             if (!ExpModelParser.simulation_meta_data.get("report").equals("none")) {
                 ExportReport exportReport = new ExportReport(model);
@@ -207,6 +210,10 @@ public class MainModel extends Model {
         return this.datapoints;
     }
 
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
     public double getPrecision() {
         return precision;
     }
@@ -223,6 +230,33 @@ public class MainModel extends Model {
         this.seed = seed;
     }
 
+    public CPU.Scheduling getCpuScheduling() {
+        return cpuScheduling;
+    }
+
+    /**
+     * Selects how the cpu of an instance shares its capacity between the active threads.
+     * @param scheduling "round_robin" for the previous round robin replay, anything else for processor sharing
+     */
+    public void setCpuScheduling(String scheduling) {
+        if ("round_robin".equals(scheduling))
+            this.cpuScheduling = CPU.Scheduling.ROUND_ROBIN;
+        else
+            this.cpuScheduling = CPU.Scheduling.PROCESSOR_SHARING;
+    }
+
+    public boolean isRequestPooling() {
+        return requestPooling;
+    }
+
+    /**
+     * Selects whether the objects of finished requests are reused by the <code>RequestPool</code>.
+     * @param pooling "true" to reuse them, anything else to create new objects for every request
+     */
+    public void setRequestPooling(String pooling) {
+        this.requestPooling = "true".equals(pooling);
+    }
+
     public TimeUnit getTimeUnit() {
         return timeUnit;
     }
@@ -249,13 +283,7 @@ public class MainModel extends Model {
      * @return id of the corresponding microservice if successful, otherwise -1
      */
     public int getIdByName(String name){
-
-        for(int i = 0; i < allMicroservices.size() ; i ++){
-            if(name.equals(allMicroservices.get(i).getName())){
-                return allMicroservices.get(i).getId();
-            }
-        }
-        return -1;
+        return topology.getIdByName(name);
     }
 
     public MainModel(Model owner, String modelName, boolean showInReport, boolean showInTrace) {
@@ -276,28 +304,6 @@ public class MainModel extends Model {
      */
     @Override
     public void init() {
-        // Resources
-        serviceCPU          = new HashMap<>();
-
-        // Queues
-        allMicroservices    = new HashMap<>();
-        taskQueues          = new HashMap<>();
-        services            = new HashMap<>();
-
-        // Resources
-        serviceCPU          = new HashMap<>();
-
-        // Statistics
-        activeThreadStatistics = new HashMap<>();
-        existingThreadStatistics = new HashMap<>();
-        cpuStatistics               = new HashMap<>();
-        responseStatisitcs          = new HashMap<>();
-        circuitBreakerStatistics    = new HashMap<>();
-        threadPoolStatistics        = new HashMap<>();
-        threadQueueStatistics       = new HashMap<>();
-        resourceLimiterStatistics = new HashMap<>();
-        taskQueueStatistics         = new HashMap<>();
-
         // Create folder for statistics file
         File resPath = new File(resourcePath);
         if(!resPath.exists()) {
@@ -306,111 +312,81 @@ public class MainModel extends Model {
 
         // Load Microservices
         Microservice[] microservices = ArchModelParser.microservices;
+        topology = new Topology(microservices);
+        recorder = new MetricsRecorder(this, resourcePath + "metrics.bin", topology);
+        activity = new ActivityTracker(topology.getInstanceCount());
+        requests = new RequestPool(this);
         for(int id = 0; id < microservices.length; id++){
 
             String serviceName = microservices[id].getName();
 
             // Queues
-            Queue<Microservice> idleQueue = new Queue<Microservice>(this, "Idle Queue: " + serviceName, true, true);
-            Queue<MessageObject> taskQueue = new Queue<MessageObject>(this, "Task Queue: " + serviceName, true , true) ;
-
-            // Resources
-            HashMap<Integer, CPU> cpu = new HashMap<>();
-
-            // Statistics
-            HashMap<Integer, TimeSeries> activeThreadStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> existingThreadStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> cpuStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> responseStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> threadPoolStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> threadQueueStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> resourceLimiterStats = new HashMap<>();
-            HashMap<Integer, TimeSeries> circuitBreakerStats = new HashMap<>();
-            TimeSeries taskQueueWork = new TimeSeries(this, "Task Queue: " + serviceName,
-                    resourcePath + "TaskQueue_" + serviceName + ".txt",
-                    new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
+            TaskQueue taskQueue = new TaskQueue(this, id);
+
+            // Random streams
+            for (Operation operation : microservices[id].getOperations()) {
+                operation.setDependencySampler(new DependencySampler(operation.getDependencies(),
+                        createRandomStream("Dependencies: " + serviceName + "." + operation.getName())));
+            }
 
+            // Load Balancer
+            LoadBalancer loadBalancer = createLoadBalancer(microservices[id]);
+            topology.setLoadBalancer(id, loadBalancer);
 
             for(int instance = 0; instance < microservices[id].getInstances(); instance++){
-                Microservice msEntity = new Microservice(this , microservices[id].getName(), true );
-                msEntity.setId(id);
-                msEntity.setSid(instance);
-                msEntity.setName(microservices[id].getName());
-                msEntity.setPatterns(microservices[id].getPatterns());
-                msEntity.setCapacity(microservices[id].getCapacity());
-                msEntity.setInstances(microservices[id].getInstances());
-                msEntity.setOperations(microservices[id].getOperations());
-                idleQueue.insert(msEntity);
-                allMicroservices.put(id, msEntity);
+                Microservice msEntity = new Microservice(topology.getTemplate(id), instance);
+
+                // Statistics
+                msEntity.setStatistics(new InstanceStatistics(recorder, activity, id,
+                        topology.getSlot(id, instance)));
 
                 // Resources
-                CPU msCPU = new CPU(this, "", false, id, instance, msEntity.getCapacity());
-                cpu.put(instance, msCPU);
-                String postfix = serviceName + " #" + instance;
-                String file = serviceName + "_" + instance + ".txt";
+                msEntity.setCPU(new CPU(this, "", false, msEntity));
 
-                // Statistics
-                TimeSeries activeInstances = new TimeSeries(this, "Active Threads: " + postfix,
-                        resourcePath + "ActiveThreads_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries existingInstances = new TimeSeries(this, "Existing Threads: " + postfix,
-                        resourcePath + "ExistingThreads_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries activeCPU = new TimeSeries(this, "Used CPU: " + postfix,
-                        resourcePath + "CPU_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries responseTime = new TimeSeries(this, "Response Time: " + postfix,
-                        resourcePath + "ResponseTime_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries threadPool = new TimeSeries(this, "Tasks refused by Thread Pool: " + postfix,
-                        resourcePath + "ThreadPool_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries threadQueue = new TimeSeries(this, "Tasks refused by Thread Queue: " + postfix,
-                        resourcePath + "ThreadQueue_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries resourceLimiter = new TimeSeries(this, "Tasks refused by Resource Limiter: " + postfix,
-                        resourcePath + "ResourceLimiter_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                TimeSeries circuitBreaker = new TimeSeries(this, "Tasks refused by Circuit Breaker: " + postfix,
-                        resourcePath + "CircuitBreaker_" + file,
-                        new TimeInstant(0.0, timeUnit), new TimeInstant(simulationTime, timeUnit), false, false);
-
-                activeThreadStats.put(instance, activeInstances);
-                existingThreadStats.put(instance, existingInstances);
-                cpuStats.put(instance, activeCPU);
-                responseStats.put(instance, responseTime);
-                threadPoolStats.put(instance, threadPool);
-                threadQueueStats.put(instance, threadQueue);
-                resourceLimiterStats.put(instance, resourceLimiter);
-                circuitBreakerStats.put(instance, circuitBreaker);
+                topology.setInstance(id, instance, msEntity);
+                loadBalancer.addInstance(msEntity);
             }
             // Queues
-            taskQueues.put(id, taskQueue);
-            services.put(id, idleQueue);
-
-            // Resources
-            serviceCPU.put(id, cpu);
-
-            // Statistics
-            activeThreadStatistics.put(id, activeThreadStats);
-            existingThreadStatistics.put(id, existingThreadStats);
-            cpuStatistics.put(id, cpuStats);
-            responseStatisitcs.put(id, responseStats);
-            circuitBreakerStatistics.put(id, circuitBreakerStats);
-            threadPoolStatistics.put(id, threadPoolStats);
-            threadQueueStatistics.put(id, threadQueueStats);
-            resourceLimiterStatistics.put(id, resourceLimiterStats);
-            taskQueueStatistics.put(id, taskQueueWork);
+            topology.setTaskQueue(id, taskQueue);
         }
     }
 
+    /**
+     * Creates the load balancer of a microservice as configured by its <code>loadBalancer</code> key.
+     * @param service the microservice as described in the architecture model
+     * @return the load balancer, least connections if none or an unknown one is configured
+     */
+    private LoadBalancer createLoadBalancer(Microservice service) {
+        String strategy = service.getLoadBalancer();
+        int instances = service.getInstances();
+        if ("round_robin".equals(strategy))
+            return new RoundRobinBalancer(instances);
+        else if ("random".equals(strategy))
+            return new RandomBalancer(createRandomStream("Load Balancer: " + service.getName()), instances);
+        else if ("power_of_two_choices".equals(strategy))
+            return new PowerOfTwoChoicesBalancer(createRandomStream("Load Balancer: " + service.getName()), instances);
+        else if ("consistent_hashing".equals(strategy))
+            return new ConsistentHashingBalancer(instances);
+        else
+            return new LeastConnectionsBalancer(instances);
+    }
+
+    /**
+     * Creates a uniform random stream on [0, 1). Streams are created once in <code>init()</code> and are seeded from
+     * the seed of the experiment and their name, so a run is reproducible for a given seed independent of the
+     * order in which streams are created.
+     * @param name the unique name of the stream
+     * @return the random stream
+     */
+    private ContDistUniform createRandomStream(String name) {
+        ContDistUniform stream = new ContDistUniform(this, name, 0.0, 1.0, false, false);
+        long streamSeed = seed * 0x9e3779b97f4a7c15L + name.hashCode();
+        streamSeed = (streamSeed ^ (streamSeed >>> 30)) * 0xbf58476d1ce4e5b9L;
+        streamSeed = (streamSeed ^ (streamSeed >>> 27)) * 0x94d049bb133111ebL;
+        stream.setSeed(streamSeed ^ (streamSeed >>> 31));
+        return stream;
+    }
+
     private String timeFormat(long nanosecs) {
         long tempSec = nanosecs / (1000*1000*1000);
         long ms = (nanosecs / (1000*1000)) % 1000;
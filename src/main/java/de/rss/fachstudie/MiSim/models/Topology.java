@@ -0,0 +1,239 @@
+package de.rss.fachstudie.MiSim.models;
+
+import de.rss.fachstudie.MiSim.balancing.LoadBalancer;
+import de.rss.fachstudie.MiSim.entities.Dependency;
+import de.rss.fachstudie.MiSim.entities.DependencySampler;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import de.rss.fachstudie.MiSim.entities.Operation;
+import de.rss.fachstudie.MiSim.entities.ServiceTemplate;
+import de.rss.fachstudie.MiSim.resources.TaskQueue;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * The <code>Topology</code> holds all microservices and their instances in flat arrays.
+ * Services have dense ids from 0 to n - 1. The instances of a service occupy consecutive slots, starting at the
+ * first slot of the service. The topology is built once in <code>MainModel.init()</code>, afterwards every lookup on
+ * the event path is an array access.
+ * Which instances are alive is kept in a bitset over the slots together with a live count per service, so killing
+ * an instance and checking whether a service has any instance left never scans the instances.
+ */
+public class Topology {
+    private Microservice[] services;
+    private ServiceTemplate[] templates;
+    private int[] firstSlot;
+    private int[] instanceCount;
+    private Microservice[] instances;
+    private BitSet live;
+    private int[] liveCount;
+    private TaskQueue[] taskQueues;
+    private LoadBalancer[] loadBalancers;
+    private HashMap<String, Integer> idsByName;
+
+    /**
+     * Reserves the slots for all instances of the given microservices. The id of each microservice is its position
+     * in the array.
+     *
+     * @param microservices Microservice[]: The microservices of the architecture model
+     */
+    public Topology(Microservice[] microservices) {
+        services = microservices;
+        firstSlot = new int[microservices.length];
+        instanceCount = new int[microservices.length];
+        liveCount = new int[microservices.length];
+        taskQueues = new TaskQueue[microservices.length];
+        loadBalancers = new LoadBalancer[microservices.length];
+        idsByName = new HashMap<>();
+
+        int slots = 0;
+        for (int id = 0; id < microservices.length; id++) {
+            microservices[id].setId(id);
+            idsByName.put(microservices[id].getName(), id);
+            firstSlot[id] = slots;
+            instanceCount[id] = microservices[id].getInstances();
+            slots += instanceCount[id];
+
+            Operation[] operations = microservices[id].getOperations();
+            for (int op = 0; op < operations.length; op++) {
+                operations[op].setId(op);
+            }
+        }
+        instances = new Microservice[slots];
+        live = new BitSet(slots);
+
+        resolveDependencies();
+
+        // Compile the descriptions once the operations are resolved, instances only refer to them
+        templates = new ServiceTemplate[microservices.length];
+        for (int id = 0; id < microservices.length; id++) {
+            templates[id] = new ServiceTemplate(id, microservices[id]);
+        }
+    }
+
+    /**
+     * Resolves the names of all dependencies to the id of the target microservice and the target operation, so no
+     * names have to be compared during the simulation.
+     *
+     * @throws IllegalArgumentException if an operation has more dependencies than the bit mask of the
+     *                                  <code>DependencySampler</code> can hold
+     */
+    private void resolveDependencies() {
+        for (Microservice service : services) {
+            for (Operation operation : service.getOperations()) {
+                if (operation.getDependencies().length > DependencySampler.MAX_DEPENDENCIES) {
+                    throw new IllegalArgumentException("Operation " + operation.getName() + " of microservice "
+                            + service.getName() + " has " + operation.getDependencies().length
+                            + " dependencies, at most " + DependencySampler.MAX_DEPENDENCIES + " are supported");
+                }
+                for (Dependency dependency : operation.getDependencies()) {
+                    int serviceId = getIdByName(dependency.getService());
+                    dependency.setServiceId(serviceId);
+                    if (serviceId != -1) {
+                        dependency.setTargetOperation(services[serviceId].getOperation(dependency.getOperation()));
+                    }
+                }
+            }
+        }
+    }
+
+    public int getServiceCount() {
+        return services.length;
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return Microservice: The microservice as described in the architecture model
+     */
+    public Microservice getService(int id) {
+        return services[id];
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return ServiceTemplate: The compiled description that all instances of the microservice share
+     */
+    public ServiceTemplate getTemplate(int id) {
+        return templates[id];
+    }
+
+    public Microservice[] getServices() {
+        return services;
+    }
+
+    /**
+     * @param name String: The name of a microservice
+     * @return int: The id of the microservice, -1 if there is no microservice with this name
+     */
+    public int getIdByName(String name) {
+        Integer id = idsByName.get(name);
+        if (id == null)
+            return -1;
+        return id;
+    }
+
+    public int getInstanceCount(int id) {
+        return instanceCount[id];
+    }
+
+    /**
+     * @return int: The number of instances of all microservices
+     */
+    public int getInstanceCount() {
+        return instances.length;
+    }
+
+    /**
+     * @return int: The slot of an instance, between 0 and <code>getInstanceCount()</code> - 1
+     */
+    public int getSlot(int id, int sid) {
+        return firstSlot[id] + sid;
+    }
+
+    public Microservice getInstance(int id, int sid) {
+        return instances[firstSlot[id] + sid];
+    }
+
+    /**
+     * @param slot int: The slot of the instance, between 0 and <code>getInstanceCount()</code> - 1
+     * @return Microservice: The instance in this slot
+     */
+    public Microservice getInstance(int slot) {
+        return instances[slot];
+    }
+
+    /**
+     * Puts an instance into its slot. The instance is alive unless it is marked as killed.
+     */
+    public void setInstance(int id, int sid, Microservice instance) {
+        int slot = firstSlot[id] + sid;
+        if (live.get(slot)) {
+            live.clear(slot);
+            liveCount[id]--;
+        }
+        instances[slot] = instance;
+        if (!instance.isKilled()) {
+            live.set(slot);
+            liveCount[id]++;
+        }
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return int: The number of instances of the microservice that are alive
+     */
+    public int getLiveInstanceCount(int id) {
+        return liveCount[id];
+    }
+
+    public boolean isAlive(int id, int sid) {
+        return live.get(firstSlot[id] + sid);
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return Microservice: The live instance with the lowest sid or null if no instance is alive
+     */
+    public Microservice getFirstLiveInstance(int id) {
+        int slot = live.nextSetBit(firstSlot[id]);
+        if (slot < 0 || slot >= firstSlot[id] + instanceCount[id])
+            return null;
+        return instances[slot];
+    }
+
+    /**
+     * Kills an instance: it is removed from the load balancer of its microservice and all of its threads are
+     * dropped.
+     *
+     * @param instance Microservice: The instance to kill
+     * @return boolean: False if the instance was already killed
+     */
+    public boolean killInstance(Microservice instance) {
+        int id = instance.getId();
+        int slot = firstSlot[id] + instance.getSid();
+        if (!live.get(slot))
+            return false;
+        live.clear(slot);
+        liveCount[id]--;
+        instance.setKilled(true);
+        loadBalancers[id].removeInstance(instance);
+        instance.getCPU().removeAllThreads();
+        return true;
+    }
+
+    public TaskQueue getTaskQueue(int id) {
+        return taskQueues[id];
+    }
+
+    public void setTaskQueue(int id, TaskQueue taskQueue) {
+        taskQueues[id] = taskQueue;
+    }
+
+    public LoadBalancer getLoadBalancer(int id) {
+        return loadBalancers[id];
+    }
+
+    public void setLoadBalancer(int id, LoadBalancer loadBalancer) {
+        loadBalancers[id] = loadBalancer;
+    }
+}
@@ -1,437 +1,403 @@
 package de.rss.fachstudie.MiSim.resources;
 
 import co.paralleluniverse.fibers.SuspendExecution;
+import de.rss.fachstudie.MiSim.balancing.LoadBalancer;
+import de.rss.fachstudie.MiSim.entities.Microservice;
 import de.rss.fachstudie.MiSim.entities.Operation;
+import de.rss.fachstudie.MiSim.entities.ServiceTemplate;
 import de.rss.fachstudie.MiSim.entities.patterns.CircuitBreaker;
-import de.rss.fachstudie.MiSim.entities.patterns.Pattern;
+import de.rss.fachstudie.MiSim.events.TimeoutEvent;
 import de.rss.fachstudie.MiSim.models.MainModel;
-import desmoj.core.simulator.*;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import de.rss.fachstudie.MiSim.statistics.Metric;
+import desmoj.core.simulator.ExternalEvent;
+import desmoj.core.simulator.Model;
+import desmoj.core.simulator.TimeInstant;
+import desmoj.core.simulator.TimeSpan;
+
+import java.util.BitSet;
+
+/**
+ * The <code>CPU</code> of a microservice instance shares its capacity between all active threads.
+ *
+ * PROCESSOR_SHARING:   every active thread is served with capacity / n. Progress is tracked with a virtual clock
+ *                      that advances by capacity / n per second, so each thread only stores the virtual time at
+ *                      which it will be finished and no thread has to be touched while the cpu advances.
+ * ROUND_ROBIN:         the previous behaviour, which replays all robins since the last thread entry.
+ *
+ * In both modes the active threads are kept in a heap ordered by their finish tag. Work that all active threads
+ * computed together only advances the virtual clock, so the next thread to finish is always at the top of the heap.
+ * The <code>ThreadScheduler</code> does this arithmetic, the cpu schedules itself for the time it is given.
+ *
+ * The cpu is busy while it has an active thread. The busy time is integrated whenever the set of active threads
+ * changes, so the usage of every statistic interval is exact and not a sample of the current state. The usage window
+ * keeps samples of the total busy time. An idle cpu is not sampled, its busy time doesn't change until it gets
+ * active again, and then it is sampled once before the first thread starts.
+ */
+public class CPU extends ExternalEvent {
+
+    public enum Scheduling {
+        PROCESSOR_SHARING, ROUND_ROBIN;
+    }
 
-public class CPU extends Event<Thread> {
     private MainModel model;
+    private Microservice instance;
+    private LoadBalancer loadBalancer;
     private int id = -1;
     private int sid = -1;
     private int capacity = 0;
-    private double robinTime = 10;
-    private double cycleTime = 0;
-    private double lastThreadEntry;
-    private double smallestThread = 0.0;
-    private Map<Double, Double> cpuUsageMean;
+    private UsageWindow usage = new UsageWindow();
 
-    private Queue<Thread> activeThreads;
-    private Queue<Thread> waitingThreads;
-    private Queue<Thread> existingThreads;
-    private boolean hasThreadPool = false;
-    private int threadPoolSize = 0;
-    private boolean hasThreadQueue = false;
-    private int threadQueueSize = 0;
+    private ThreadScheduler scheduler;
+    private ThreadSet existingThreads;
 
-    private List<CircuitBreakerData> circuitBreakerDataList;
+    private CircuitBreakerData[] circuitBreakerData;
 
-    private List<String> openCircuits;
+    private BitSet openCircuits;
 
-    public CPU(Model owner, String name, boolean showInTrace, int id, int sid, int capacity) {
+    public CPU(Model owner, String name, boolean showInTrace, Microservice instance) {
         super(owner, name, showInTrace);
 
         model = (MainModel) owner;
-        this.id = id;
-        this.sid = sid;
-        this.capacity = capacity;
-        lastThreadEntry = 0;
-        cpuUsageMean = new TreeMap<>();
-        existingThreads = new Queue<Thread>(owner, "", false, false);
-
-        if (model.allMicroservices.get(id).hasPattern("Thread Pool")) {
-            Pattern threadPool = model.allMicroservices.get(id).getPattern("Thread Pool");
-            if (threadPool.getArguments().length > 0) {
-                threadPoolSize = threadPool.getArgument(0);
-            } else {
-                // Default
-                threadPoolSize = 10;
-            }
-            activeThreads = new Queue<>(owner, "", QueueBased.FIFO, threadPoolSize, false, false);
-            hasThreadPool = true;
-            if (threadPool.getArguments().length > 1) {
-                threadQueueSize = threadPool.getArgument(1);
-            } else {
-                // Default
-                threadQueueSize = 10;
+        this.instance = instance;
+        this.id = instance.getId();
+        this.sid = instance.getSid();
+        this.capacity = instance.getCapacity();
+        loadBalancer = model.topology.getLoadBalancer(id);
+        scheduler = new ThreadScheduler(model.getCpuScheduling(), capacity, new ThreadScheduler.Listener() {
+            @Override
+            public void activeThreadsChanging(boolean starting) {
+                if (starting && !scheduler.isBusy() && instance.getStatistics().markActive()) {
+                    // the cpu was idle since it was sampled the last time
+                    collectUsage();
+                }
+                accountBusyTime();
             }
-            waitingThreads = new Queue<>(owner, "", QueueBased.FIFO, threadQueueSize, false, false);
-            hasThreadQueue = true;
-        } else {
-            activeThreads = new Queue<>(owner, "", false, false);
-        }
 
-        circuitBreakerDataList = new ArrayList<CircuitBreakerData>();
-        openCircuits = new ArrayList<String>();
-    }
+            @Override
+            public void threadDone(Thread thread) {
+                thread.scheduleEndEvent();
+            }
 
-    @Override
-    public void eventRoutine(Thread threadToEnd) throws SuspendExecution {
-        for (Thread thread : activeThreads) {
-            thread.subtractDemand((int) smallestThread);
-            if (thread.getDemand() == 0 || thread == threadToEnd) {
+            @Override
+            public void threadRejected(Thread thread, Metric metric) {
                 thread.scheduleEndEvent();
-                activeThreads.remove(thread);
+
+                // statistics
+                instance.getStatistics().increase(metric);
             }
-        }
-        calculateMin();
-    }
 
-    public void addThread(Thread thread, Operation operation) {
-        // update all threads that are currently in the active queue
-        int robins = (int) Math.round((model.presentTime().getTimeAsDouble() - lastThreadEntry) * 1000 / robinTime);
-        for (int i = 0; i < robins; i++) {
-            if (activeThreads.size() > 0) {
-                Thread activeThread = activeThreads.get(i % activeThreads.size());
-                if (activeThread.getDemand() == 0) {
-                    activeThread.scheduleEndEvent();
-                    activeThreads.remove(activeThread);
+            @Override
+            public void schedule(double time) {
+                TimeInstant completion = new TimeInstant(time, model.getTimeUnit());
+                if (isScheduled()) {
+                    reSchedule(completion);
                 } else {
-                    activeThread.subtractDemand(robinTime);
+                    CPU.this.schedule(completion);
                 }
             }
-        }
 
-        lastThreadEntry = this.model.presentTime().getTimeAsDouble();
+            @Override
+            public void cancel() {
+                if (isScheduled()) {
+                    CPU.this.cancel();
+                }
+            }
+        });
+        existingThreads = new ThreadSet();
 
+        ServiceTemplate template = instance.getTemplate();
+        if (template.hasThreadPool()) {
+            scheduler.setThreadPool(template.getThreadPoolSize(), template.getThreadQueueSize());
+        }
 
-        // check for patterns
-        if (!hasThreadPool || activeThreads.size() < threadPoolSize) {
-            // cpu has no thread pool, or the size of the thread pool is big enough
-            activeThreads.insert(thread);
-        } else {
-            if (hasThreadQueue) {
-                if (waitingThreads.size() < threadQueueSize) {
+        circuitBreakerData = new CircuitBreakerData[instance.getOperations().length];
+        openCircuits = new BitSet(instance.getOperations().length);
+    }
 
-                    // a thread queue exists and the size is big enough
-                    waitingThreads.insert(thread);
-                } else {
+    @Override
+    public void eventRoutine() throws SuspendExecution {
+        scheduler.complete(model.presentTime().getTimeAsDouble());
+    }
 
-                    // thread waiting queue is too big, send default response
-                    thread.scheduleEndEvent();
+    public void addThread(Thread thread, Operation operation) {
+        scheduler.add(thread, model.presentTime().getTimeAsDouble());
+    }
 
-                    // statistics
-                    double last = 0;
-                    List<Double> values = model.threadQueueStatistics.get(thread.getId()).get(thread.getSid()).getDataValues();
-                    if (values != null)
-                        last = values.get(values.size() - 1);
-                    model.threadQueueStatistics.get(thread.getId()).get(thread.getSid()).update(last + 1);
-                }
-            } else {
-                // thread pool is too big, send default response
-                thread.scheduleEndEvent();
+    /**
+     * Brings the circuit breaker of an operation up to date with the current time: slides the rolling window and
+     * half opens an open circuit whose sleep window has expired. Everything else only changes when a counter changes
+     * or a thread times out.
+     *
+     * @param cbData CircuitBreakerData: The circuit breaker data of the operation
+     */
+    private void refreshCircuitBreaker(CircuitBreakerData cbData) {
+        double time = this.model.presentTime().getTimeAsDouble();
+        CircuitBreaker circuitBreaker = cbData.getOperation().getCircuitBreaker();
 
-                // statistics
-                double last = 0;
-                List<Double> values = model.threadPoolStatistics.get(thread.getId()).get(thread.getSid()).getDataValues();
-                if (values != null)
-                    last = values.get(values.size() - 1);
-                model.threadPoolStatistics.get(thread.getId()).get(thread.getSid()).update(last + 1);
-            }
-        }
+        // Drop the stats that left the rolling window
+        cbData.advance(time);
 
-        // Shift from waiting queue to the active queue
-        if (hasThreadQueue) {
-            int freeSlots = threadPoolSize - activeThreads.size();
-            for (int index = 0; index < freeSlots; ++index) {
-                activeThreads.insert(waitingThreads.first());
-                waitingThreads.removeFirst();
+        // Circuit is open
+        if (cbData.getState() == CircuitBreaker.State.OPEN) {
+            // Sleep window expired -> Set state to half open
+            if (time > (cbData.getCbOpenTime() + circuitBreaker.getSleepWindow())) {
+                halfOpenCircuit(cbData);
             }
         }
-
-        calculateMin();
     }
 
-    private void calculateMin() {
-        Thread smallestThreadInstance = null;
-        if (activeThreads.size() > 0) {
-            smallestThreadInstance = activeThreads.get(0);
-            smallestThread = Double.POSITIVE_INFINITY;
-            for (Thread t : activeThreads) {
-                if (t.getDemand() < smallestThread) {
-                    smallestThread = t.getDemand();
-                    smallestThreadInstance = t;
+    /**
+     * Opens a closed circuit if the error threshold has been reached. Called whenever a counter of the circuit
+     * breaker changes.
+     *
+     * @param cbData CircuitBreakerData: The circuit breaker data of the operation
+     */
+    private void evaluateCircuitBreaker(CircuitBreakerData cbData) {
+        CircuitBreaker circuitBreaker = cbData.getOperation().getCircuitBreaker();
+
+        // Circuit is closed
+        if (cbData.getState() == CircuitBreaker.State.CLOSED) {
+            // Check if circuit reached requestVolumeThreshold
+            if (cbData.getRequestVolume() >= circuitBreaker.getRequestVolumeThreshold()) {
+                double errorPercentage = cbData.getErrorPercentage();
+
+                // Check if we've reached the errorThresholdPercentage
+                if (errorPercentage >= circuitBreaker.getErrorThresholdPercentage()) {
+                    // Threshold reached -> open the circuit
+                    openCircuit(cbData);
                 }
             }
         }
-
-        // schedule to time when smallest thread is done
-        if (!activeThreads.isEmpty()) {
-            cycleTime = (activeThreads.size() * smallestThread) / capacity;
-
-            if (isScheduled()) {
-                reSchedule(new TimeInstant(cycleTime + model.presentTime().getTimeAsDouble(), model.getTimeUnit()));
-            } else {
-                schedule(smallestThreadInstance, new TimeInstant(cycleTime + model.presentTime().getTimeAsDouble(), model.getTimeUnit()));
-            }
-        }
     }
 
-    public void checkCircuitBreakers() {
-
-        if (circuitBreakerDataList.isEmpty()) {
+    /**
+     * Called by the <code>TimeoutEvent</code> of a thread when the timeout of its circuit breaker has elapsed.
+     * Counts the failure and ends the thread. A timed out trial opens the circuit again.
+     *
+     * @param thread Thread: The thread that timed out
+     */
+    public void timeout(Thread thread) {
+        // the thread is already done
+        if (thread.isEnded()) {
             return;
         }
+        thread.setTimeoutPending(false);
 
-        double time = this.model.presentTime().getTimeAsDouble();
-
-        // Check for each thread if the timeout limit has been reached
-        if (existingThreads != null) {
-            for (Thread thread : existingThreads) {
-                if (thread != null && thread.getOperation().hasCircuitBreaker()) {
-                    double threadCreationTime = thread.getCreationTime();
-                    double threadLifeTime = time - threadCreationTime;
-
-                    Operation threadOperation = thread.getOperation();
-
-                    if (threadOperation != null) {
-                        CircuitBreakerData threadOpCBData = getCircuitBreakerData(threadOperation.getName());
-                        CircuitBreaker circuitBreaker = threadOperation.getCircuitBreaker();
-
-                        if (circuitBreaker != null) {
-                            // Thread timed out
-                            if (threadLifeTime >= circuitBreaker.getTimeout()) {
-                                // Add failure to stats
-                                threadOpCBData.increaseErrorCount();
-                            }
-                        } else {
-                            System.out.println("Operation that should have a circuit breaker doesn't have one");
-                        }
-                    }
-                }
-            }
-        }
-
-        for (CircuitBreakerData cbData : circuitBreakerDataList) {
+        CircuitBreakerData cbData = getCircuitBreakerData(thread.getOperation());
+        refreshCircuitBreaker(cbData);
 
-            CircuitBreaker circuitBreaker = cbData.getOperation().getCircuitBreaker();
+        // Add failure to stats
+        cbData.increaseErrorCount();
 
-            // Circuit is closed
-            if (cbData.getState() == CircuitBreaker.State.CLOSED) {
-                // Check if circuit reached requestVolumeThreshold
-                if (cbData.getRequestVolume() >= circuitBreaker.getRequestVolumeThreshold()) {
-                    double errorPercentage = cbData.getErrorCount() / cbData.getRequestVolume();
+        if (cbData.getState() == CircuitBreaker.State.HALF_OPEN && cbData.getTrialThread() == thread) {
+            // Trial timed out -> Set state to open
+            openCircuit(cbData);
+            cbData.setTrialSent(false);
+            cbData.setTrialThread(null);
+        } else {
+            evaluateCircuitBreaker(cbData);
+        }
 
-                    // Check if we've reached the errorThresholdPercentage
-                    if (errorPercentage >= circuitBreaker.getErrorThresholdPercentage()) {
-                        // Threshold reached -> open the circuit
-                        openCircuit(cbData);
-                    }
-                }
-            }
+        thread.scheduleEndEvent();
+        removeActiveThread(thread);
+    }
 
-            // Circuit is open
-            if (cbData.getState() == CircuitBreaker.State.OPEN) {
-                // Sleep window expired -> Set state to half open
-                if (time > (cbData.getCbOpenTime() + circuitBreaker.getSleepWindow())) {
-                    halfOpenCircuit(cbData);
-                }
-            }
+    private void scheduleTimeout(Thread thread, CircuitBreaker circuitBreaker) {
+        thread.getTimeoutEvent().schedule(new TimeSpan(circuitBreaker.getTimeout(), model.getTimeUnit()));
+        thread.setTimeoutPending(true);
+    }
 
-            // Circuit is half open
-            if (cbData.getState() == CircuitBreaker.State.HALF_OPEN) {
-                // Check if trial has been sent
-                if (cbData.getTrialThread() != null) {
-                    double trialStartTime = cbData.getTrialThread().getCreationTime();
-
-                    // Trial timed out -> Set state to open
-                    if ((time - trialStartTime) > circuitBreaker.getTimeout()) {
-                        openCircuit(cbData);
-                        cbData.setTrialSent(false);
-                        cbData.setTrialThread(null);
-                    } else if (cbData.getTrialThread().getDemand() == 0) {
-                        // Trial is handled -> Set state to closed
-                        closeCircuit(cbData);
-                    }
-                }
-            }
+    /**
+     * Cancels the timeout of a thread that is done or dropped. If the thread was the trial of a half open circuit,
+     * the circuit closes if the trial succeeded and opens again otherwise.
+     */
+    private void finishTimeout(Thread thread, boolean succeeded) {
+        if (!thread.isTimeoutPending()) {
+            return;
+        }
+        TimeoutEvent timeoutEvent = thread.getTimeoutEvent();
+        if (timeoutEvent.isScheduled()) {
+            timeoutEvent.cancel();
         }
+        thread.setTimeoutPending(false);
 
-        if (existingThreads != null) {
-            for (Thread thread : existingThreads) {
-                if (thread != null && thread.getOperation().hasCircuitBreaker()) {
-                    double threadCreationTime = thread.getCreationTime();
-                    double threadLifeTime = time - threadCreationTime;
-
-                    Operation threadOperation = thread.getOperation();
-
-                    if (threadOperation != null) {
-                        CircuitBreaker circuitBreaker = threadOperation.getCircuitBreaker();
-                        CircuitBreakerData cbData = getCircuitBreakerData(threadOperation.getName());
-
-                        if (circuitBreaker != null) {
-
-                            // Reset stats of new rolling window
-                            if ((time - cbData.getRollingWindowStartTime()) > circuitBreaker.getRollingWindow()) {
-                                cbData.setRequestVolume(0);
-                                cbData.setErrorCount(0);
-                                cbData.setRollingWindowStartTime(time);
-                            }
-
-                            // Thread timed out
-                            if (threadLifeTime >= circuitBreaker.getTimeout()) {
-                                thread.scheduleEndEvent();
-                                if (activeThreads.contains(thread)) {
-                                    activeThreads.remove(thread);
-                                }
-                            }
-                        }
-                    }
-                }
+        CircuitBreakerData cbData = getCircuitBreakerData(thread.getOperation());
+        if (cbData.getState() == CircuitBreaker.State.HALF_OPEN && cbData.getTrialThread() == thread) {
+            if (succeeded) {
+                // Trial is handled -> Set state to closed
+                closeCircuit(cbData);
+            } else {
+                openCircuit(cbData);
+                cbData.setTrialSent(false);
+                cbData.setTrialThread(null);
             }
         }
     }
 
     private void openCircuit(CircuitBreakerData cbData) {
-        String operationName = cbData.getOperation().getName();
-
         cbData.setState(CircuitBreaker.State.OPEN);
         cbData.setCbOpenTime(this.model.presentTime().getTimeAsDouble());
 
-        if (!openCircuits.contains(operationName)) {
-            openCircuits.add(operationName);
-        }
+        openCircuits.set(cbData.getOperation().getId());
     }
 
     private void closeCircuit(CircuitBreakerData cbData) {
-        String operationName = cbData.getOperation().getName();
-
         cbData.setState(CircuitBreaker.State.CLOSED);
         cbData.setTrialSent(false);
         cbData.setTrialThread(null);
 
-        if (openCircuits.contains(operationName)) {
-            openCircuits.remove(operationName);
-        }
+        openCircuits.clear(cbData.getOperation().getId());
     }
 
     private void halfOpenCircuit(CircuitBreakerData cbData) {
-        String operationName = cbData.getOperation().getName();
-
         cbData.setState(CircuitBreaker.State.HALF_OPEN);
-        if (openCircuits.contains(operationName)) {
-            openCircuits.remove(operationName);
-        }
+        openCircuits.clear(cbData.getOperation().getId());
     }
 
     public void releaseUnfinishedThreads() {
-        for (int thread = activeThreads.size() - 1; thread >= 0; thread--) {
-            activeThreads.get(thread).scheduleEndEvent();
+        for (int thread = scheduler.getActiveThreadCount() - 1; thread >= 0; thread--) {
+            scheduler.getActiveThread(thread).scheduleEndEvent();
         }
     }
 
-    public Queue<Thread> getExistingThreads() {
+    /**
+     * Removes a thread from the cpu before it is done, e.g. because of a timeout. A thread that waits for the thread
+     * pool is taken out of the waiting queue.
+     *
+     * @param thread Thread: The thread to remove
+     */
+    public void removeActiveThread(Thread thread) {
+        scheduler.remove(thread, model.presentTime().getTimeAsDouble());
+    }
+
+    /**
+     * Removes all existing and active threads, e.g. when the instance is killed.
+     */
+    public void removeAllThreads() {
+        for (int thread = existingThreads.size() - 1; thread >= 0; thread--) {
+            finishTimeout(existingThreads.get(thread), false);
+        }
+        existingThreads.clear();
+        loadBalancer.loadChanged(instance);
+        scheduler.clear();
+    }
+
+    public ThreadSet getExistingThreads() {
         return existingThreads;
     }
 
     public void addExistingThread(Thread thread, Operation operation) {
 
-        String operationName = operation.getName();
-
-        // Create new circuitBreakerDataMap entry if operation has a circuitBreaker, but isn't represented in the map
+        // Create new circuitBreakerData entry if operation has a circuitBreaker, but isn't represented in the array
         // yet
         if (operation.hasCircuitBreaker()) {
 
-            CircuitBreakerData cbData = getCircuitBreakerData(operationName);
+            CircuitBreakerData cbData = getCircuitBreakerData(operation);
 
             if (cbData == null) {
-                cbData = new CircuitBreakerData(operation);
-                cbData.setRollingWindowStartTime(model.presentTime().getTimeAsDouble());
-                circuitBreakerDataList.add(cbData);
+                cbData = new CircuitBreakerData(operation, model.presentTime().getTimeAsDouble());
+                circuitBreakerData[operation.getId()] = cbData;
             }
 
             // Operation has a circuit breaker
             // cbData is initialized
             // RollingWindow is started
-        }
 
-        checkCircuitBreakers();
-
-        if (operation.hasCircuitBreaker()) {
-            CircuitBreakerData cbData = getCircuitBreakerData(operation.getName());
+            refreshCircuitBreaker(cbData);
 
             if (!(cbData.isTrialSent()) && (cbData.getState() == CircuitBreaker.State.HALF_OPEN)) {
                 cbData.setTrialThread(thread);
                 cbData.setTrialSent(true);
-                existingThreads.insert(thread);
+                existingThreads.add(thread);
+                loadBalancer.loadChanged(instance);
+                scheduleTimeout(thread, operation.getCircuitBreaker());
 
-                if (!openCircuits.contains(operationName)) {
-                    openCircuits.add(operationName);
-                }
+                openCircuits.set(operation.getId());
 
             } else if (cbData.getState() == CircuitBreaker.State.OPEN) {
                 // Circuit is open -> fallback/fail fast
-                double last = 0;
-                List<Double> values = model.circuitBreakerStatistics.get(id).get(sid).getDataValues();
-                if (values != null)
-                    last = values.get(values.size() - 1);
-                model.circuitBreakerStatistics.get(id).get(sid).update(last + 1);
+                instance.getStatistics().increase(Metric.CIRCUIT_BREAKER);
 
                 // Kill Thread
                 thread.scheduleEndEvent();
             } else if (cbData.getState() == CircuitBreaker.State.CLOSED) {
                 cbData.increaseRequestVolume();
-                existingThreads.insert(thread);
+                existingThreads.add(thread);
+                loadBalancer.loadChanged(instance);
+                scheduleTimeout(thread, operation.getCircuitBreaker());
+                evaluateCircuitBreaker(cbData);
             }
         } else {
-            existingThreads.insert(thread);
+            existingThreads.add(thread);
+            loadBalancer.loadChanged(instance);
         }
     }
 
     public void removeExistingThread(Thread thread) {
+        finishTimeout(thread, true);
         existingThreads.remove(thread);
+        loadBalancer.loadChanged(instance);
     }
 
-    public Queue<Thread> getActiveThreads() {
-        return activeThreads;
+    public int getActiveThreadCount() {
+        return scheduler.getActiveThreadCount();
     }
 
     public int getCapacity() {
         return capacity;
     }
 
+    /**
+     * Adds a sample of the busy time to the usage window.
+     */
     public void collectUsage() {
-        cpuUsageMean.put(model.presentTime().getTimeAsDouble(), getUsage());
+        usage.collect(model.presentTime().getTimeAsDouble(), model.getStatisticChunks(), scheduler.isBusy());
     }
 
+    /**
+     * @param values double: The length of the window
+     * @return double: The share of time the cpu was busy within the window up to now
+     */
     public double getMeanUsage(double values) {
-        int collected = 0;
-        double usage = 0;
-        List<Double> vals = new ArrayList<Double>(cpuUsageMean.keySet());
-        for (int i = vals.size() - 1; i > 0; --i) {
-            if (vals.get(i) < model.presentTime().getTimeAsDouble() - values)
-                break;
-            usage += cpuUsageMean.get(vals.get(i));
-            collected++;
-        }
-        return usage / collected;
+        return usage.getMeanUsage(model.presentTime().getTimeAsDouble(), values, scheduler.isBusy());
     }
 
-    private double getUsage() {
-        if (activeThreads.size() > 0)
-            return 1.0;
-        else
-            return 0.0;
+    /**
+     * Adds the time since the last change of the active threads to the busy time, if the cpu was busy.
+     * Has to be called before the set of active threads changes.
+     */
+    private void accountBusyTime() {
+        usage.account(model.presentTime().getTimeAsDouble(), scheduler.isBusy());
     }
 
-    private CircuitBreakerData getCircuitBreakerData(String operationName) {
-        for (CircuitBreakerData data : circuitBreakerDataList) {
-            if (data.getOperation().getName().equals(operationName)) {
-                return data;
-            }
-        }
-        return null;
+    /**
+     * @return double: The time during which the cpu had at least one active thread up to now
+     */
+    public double getBusyTime() {
+        return usage.getBusyTime(model.presentTime().getTimeAsDouble(), scheduler.isBusy());
     }
 
-    public List<String> getOpenCircuits() {
-        return openCircuits;
+    /**
+     * @return double: The work the cpu has done up to now, a busy cpu works with its full capacity
+     */
+    public double getWorkDone() {
+        return getBusyTime() * capacity;
+    }
+
+    private CircuitBreakerData getCircuitBreakerData(Operation operation) {
+        return circuitBreakerData[operation.getId()];
+    }
+
+    /**
+     * @param operation Operation: An operation of this microservice
+     * @return boolean: True if requests to the operation are rejected by its circuit breaker
+     */
+    public boolean isCircuitOpen(Operation operation) {
+        CircuitBreakerData cbData = getCircuitBreakerData(operation);
+        if (cbData != null) {
+            refreshCircuitBreaker(cbData);
+        }
+        return openCircuits.get(operation.getId());
     }
 }
 
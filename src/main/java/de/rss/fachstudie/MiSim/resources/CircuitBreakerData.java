@@ -3,29 +3,86 @@ package de.rss.fachstudie.MiSim.resources;
 import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.entities.patterns.CircuitBreaker;
 
+/**
+ * The state of the circuit breaker of an operation on one instance.
+ * Requests and errors are counted in a ring of time buckets that together cover the rolling window of the circuit
+ * breaker. When time advances, only the buckets that left the window are cleared, so the window slides smoothly and
+ * the totals over the window are always available in O(1).
+ */
 public class CircuitBreakerData {
+    private static final int BUCKETS = 10;
 
     private Operation operation;
     private CircuitBreaker.State state;
-    private double requestVolume;
-    private double errorCount;
-    private double rollingWindowStartTime;
+    private int requestVolume;
+    private int errorCount;
+    private int[] bucketRequests;
+    private int[] bucketErrors;
+    private double bucketWidth;
+    private long currentBucket;
     private double cbOpenTime;
     private boolean trialSent;
     private Thread trialThread;
 
-    public CircuitBreakerData(Operation operation) {
+    /**
+     * @param operation Operation: The operation with a circuit breaker
+     * @param time      double: The time at which the rolling window starts
+     */
+    public CircuitBreakerData(Operation operation, double time) {
         this.operation = operation;
 
         this.state = CircuitBreaker.State.CLOSED;
         this.requestVolume = 0;
         this.errorCount = 0;
-        this.rollingWindowStartTime = -1;
+        this.bucketRequests = new int[BUCKETS];
+        this.bucketErrors = new int[BUCKETS];
+        this.bucketWidth = (double) operation.getCircuitBreaker().getRollingWindow() / BUCKETS;
+        this.currentBucket = bucketWidth > 0 ? (long) Math.floor(time / bucketWidth) : 0;
         this.cbOpenTime = -1;
         this.trialSent = false;
         this.trialThread = null;
     }
 
+    /**
+     * Slides the rolling window forward to the given time and drops the counts of all buckets that left it.
+     *
+     * @param time double: The current time
+     */
+    public void advance(double time) {
+        if (bucketWidth <= 0) {
+            // without a rolling window only the counts of the current moment are kept
+            clearBucket(0);
+            return;
+        }
+
+        long bucket = (long) Math.floor(time / bucketWidth);
+        if (bucket <= currentBucket) {
+            return;
+        }
+        long steps = Math.min(bucket - currentBucket, BUCKETS);
+        for (long step = 1; step <= steps; step++) {
+            clearBucket((int) ((currentBucket + step) % BUCKETS));
+        }
+        currentBucket = bucket;
+    }
+
+    private void clearBucket(int index) {
+        requestVolume -= bucketRequests[index];
+        errorCount -= bucketErrors[index];
+        bucketRequests[index] = 0;
+        bucketErrors[index] = 0;
+    }
+
+    /**
+     * @return double: The share of failed requests in the rolling window
+     */
+    public double getErrorPercentage() {
+        if (requestVolume == 0) {
+            return 0;
+        }
+        return (double) errorCount / requestVolume;
+    }
+
     public Operation getOperation() {
         return operation;
     }
@@ -42,36 +99,28 @@ public class CircuitBreakerData {
         this.state = state;
     }
 
-    public double getRequestVolume() {
+    /**
+     * @return int: The number of requests in the rolling window
+     */
+    public int getRequestVolume() {
         return requestVolume;
     }
 
-    public void setRequestVolume(double requestVolume) {
-        this.requestVolume = requestVolume;
-    }
-
     public void increaseRequestVolume() {
-        this.requestVolume = requestVolume + 1;
+        bucketRequests[(int) (currentBucket % BUCKETS)]++;
+        requestVolume++;
     }
 
-    public double getErrorCount() {
+    /**
+     * @return int: The number of failed requests in the rolling window
+     */
+    public int getErrorCount() {
         return errorCount;
     }
 
-    public void setErrorCount(double errorCount) {
-        this.errorCount = errorCount;
-    }
-
     public void increaseErrorCount() {
-        this.errorCount = errorCount + 1;
-    }
-
-    public double getRollingWindowStartTime() {
-        return rollingWindowStartTime;
-    }
-
-    public void setRollingWindowStartTime(double rollingWindowStartTime) {
-        this.rollingWindowStartTime = rollingWindowStartTime;
+        bucketErrors[(int) (currentBucket % BUCKETS)]++;
+        errorCount++;
     }
 
     public double getCbOpenTime() {
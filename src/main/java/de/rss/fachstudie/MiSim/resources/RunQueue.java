@@ -0,0 +1,145 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import java.util.ArrayList;
+
+/**
+ * The <code>RunQueue</code> holds the active threads of a cpu in a <code>ThreadHeap</code> ordered by their finish
+ * tag, and the virtual clock of the cpu. A thread is finished when the virtual clock reaches its finish tag, so work
+ * that all active threads computed together only advances the clock and no thread has to be touched.
+ *
+ * Round robin additionally needs the order in which the threads were started, the robins are dealt out in this
+ * order.
+ */
+class RunQueue {
+    private ThreadHeap heap = new ThreadHeap();
+    private ArrayList<Thread> robinOrder;
+    private double virtualTime = 0;
+
+    /**
+     * @param roundRobin boolean: True if the order in which the threads were started is needed for round robin
+     */
+    RunQueue(boolean roundRobin) {
+        if (roundRobin)
+            robinOrder = new ArrayList<>();
+    }
+
+    int size() {
+        return heap.size();
+    }
+
+    boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    boolean contains(Thread thread) {
+        return heap.contains(thread);
+    }
+
+    /**
+     * @return Thread: The thread that finishes first, null if no thread is active
+     */
+    Thread peek() {
+        return heap.peek();
+    }
+
+    /**
+     * @param index int: Position in the heap
+     * @return Thread: The thread at the position, in no particular order
+     */
+    Thread get(int index) {
+        return heap.get(index);
+    }
+
+    double getVirtualTime() {
+        return virtualTime;
+    }
+
+    /**
+     * Advances the virtual clock by the work every active thread has computed.
+     *
+     * @param work double: The work per thread
+     */
+    void advance(double work) {
+        virtualTime += work;
+    }
+
+    /**
+     * Advances the virtual clock to the finish tag of the first thread if it is behind it. Used when the cpu was
+     * scheduled for the moment the first thread is done, to avoid rounding errors.
+     */
+    void advanceToFirst() {
+        if (!heap.isEmpty())
+            virtualTime = Math.max(virtualTime, heap.peek().getFinishTag());
+    }
+
+    /**
+     * @return double: The demand the first thread still has to compute, 0 if no thread is active
+     */
+    double getSmallestDemand() {
+        if (heap.isEmpty())
+            return 0;
+        return heap.peek().getFinishTag() - virtualTime;
+    }
+
+    /**
+     * @return Thread: The first thread if the virtual clock reached its finish tag, null otherwise
+     */
+    Thread peekFinished() {
+        Thread first = heap.peek();
+        if (first != null && first.getFinishTag() <= virtualTime)
+            return first;
+        return null;
+    }
+
+    /**
+     * Starts a thread, its finish tag is the virtual time at which its demand is computed.
+     *
+     * @param thread Thread: A thread that is not active
+     */
+    void add(Thread thread) {
+        thread.setFinishTag(virtualTime + thread.getDemand());
+        heap.add(thread);
+        if (robinOrder != null)
+            robinOrder.add(thread);
+    }
+
+    /**
+     * Takes a thread off the queue and stores its remaining demand in the thread.
+     *
+     * @param thread Thread: An active thread
+     */
+    void remove(Thread thread) {
+        thread.setDemand((int) Math.max(0, Math.ceil(thread.getFinishTag() - virtualTime)));
+        heap.remove(thread);
+        if (robinOrder != null)
+            robinOrder.remove(thread);
+    }
+
+    /**
+     * @param robin int: The number of the robin since the last thread entry
+     * @return Thread: The thread that is served by the robin
+     */
+    Thread getRobinThread(int robin) {
+        return robinOrder.get(robin % robinOrder.size());
+    }
+
+    boolean isFinished(Thread thread) {
+        return thread.getFinishTag() <= virtualTime;
+    }
+
+    /**
+     * Serves one robin to a thread, which decreases its finish tag by the robin time, but not below the clock.
+     *
+     * @param thread    Thread: An active thread
+     * @param robinTime double: The work of one robin
+     */
+    void serveRobin(Thread thread, double robinTime) {
+        heap.updateFinishTag(thread, Math.max(virtualTime, thread.getFinishTag() - robinTime));
+    }
+
+    void clear() {
+        heap.clear();
+        if (robinOrder != null)
+            robinOrder.clear();
+    }
+}
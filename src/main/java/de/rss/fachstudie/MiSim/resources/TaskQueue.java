@@ -0,0 +1,94 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import desmoj.core.simulator.Model;
+
+/**
+ * The <code>TaskQueue</code> of a microservice counts the requests that are in flight on any of its instances.
+ * Every request is counted once per microservice. Instead of storing the requests, each <code>MessageObject</code>
+ * remembers the task queues it was inserted into, so inserting and removing a request is O(1).
+ * When all requests are dropped, e.g. because every instance was killed, the epoch of the queue is increased and
+ * requests that were inserted in an earlier epoch are no longer counted.
+ *
+ * The length of the queue is integrated over time, so the mean length is available without sampling.
+ */
+public class TaskQueue {
+    private Model model;
+    private int id;
+    private int size = 0;
+    private int maxSize = 0;
+    private int epoch = 0;
+    private double lengthTime = 0;
+    private double lastChange = 0;
+
+    /**
+     * @param owner Model: The model which provides the simulation time
+     * @param id    int: The ID of the microservice
+     */
+    public TaskQueue(Model owner, int id) {
+        this.model = owner;
+        this.id = id;
+    }
+
+    /**
+     * @param messageObject MessageObject: The request
+     * @return boolean: False if the request is already in this queue
+     */
+    public boolean insert(MessageObject messageObject) {
+        if (!messageObject.enterTaskQueue(id, epoch)) {
+            return false;
+        }
+        accumulate();
+        size++;
+        maxSize = Math.max(maxSize, size);
+        return true;
+    }
+
+    /**
+     * @param messageObject MessageObject: The request
+     * @return boolean: False if the request wasn't in this queue
+     */
+    public boolean remove(MessageObject messageObject) {
+        if (!messageObject.leaveTaskQueue(id, epoch)) {
+            return false;
+        }
+        accumulate();
+        size--;
+        return true;
+    }
+
+    /**
+     * Drops all requests of this queue.
+     */
+    public void removeAll() {
+        accumulate();
+        size = 0;
+        epoch++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return double: The time-weighted mean length of this queue up to now
+     */
+    public double getMeanSize() {
+        accumulate();
+        double now = model.presentTime().getTimeAsDouble();
+        if (now <= 0) {
+            return size;
+        }
+        return lengthTime / now;
+    }
+
+    private void accumulate() {
+        double now = model.presentTime().getTimeAsDouble();
+        lengthTime += size * (now - lastChange);
+        lastChange = now;
+    }
+}
@@ -1,22 +1,27 @@
 package de.rss.fachstudie.MiSim.resources;
 
+import de.rss.fachstudie.MiSim.entities.DependencyNode;
 import de.rss.fachstudie.MiSim.entities.MessageObject;
 import de.rss.fachstudie.MiSim.entities.Microservice;
 import de.rss.fachstudie.MiSim.entities.Operation;
 import de.rss.fachstudie.MiSim.events.StopEvent;
+import de.rss.fachstudie.MiSim.events.TimeoutEvent;
 import de.rss.fachstudie.MiSim.models.MainModel;
-import desmoj.core.simulator.Entity;
-import desmoj.core.simulator.Model;
 
 /**
  * A Thread describes a part of a microservice instance.
  * This thread can performs work in form of operations.
  *
+ * Threads are plain records and not DesmoJ entities. They are taken from the <code>RequestPool</code> and returned to
+ * it after their <code>StopEvent</code>, together with their own stop and timeout events. The stop event of a thread
+ * is scheduled at most once until the thread is used again.
+ *
  * id:  the service id it belongs to
  * tid: the thread id (map to the number of existing threads in the service)
+ * dependencyNode: the node of the operation in the dependency graph of the request, null if it has no dependencies
  */
-public class Thread extends Entity {
-    MainModel model;
+public class Thread {
+    private MainModel model;
     private int id;
     private int sid;
     private int tid;
@@ -25,23 +30,51 @@ public class Thread extends Entity {
     private Microservice service;
     private MessageObject mobject;
     private double creationTime;
+    private double finishTag;
+    private int heapIndex = -1;
+    private long heapOrder;
+    private int existingIndex = -1;
+    private boolean waiting;
     private boolean isBlocked;
     private Operation operation;
-
-
-    public Thread(Model owner, String name, boolean b, int demand, StopEvent end, Microservice service, MessageObject mo, Operation operation) {
-        super(owner, name, b);
-
-        model = (MainModel) owner;
+    private DependencyNode dependencyNode;
+    private TimeoutEvent timeoutEvent;
+    private boolean timeoutPending;
+    private boolean ended;
+
+    /**
+     * Creates a thread and its events. Use <code>init</code> before the thread performs an operation.
+     *
+     * @param model MainModel: The model that owns the events of the thread
+     */
+    public Thread(MainModel model) {
+        this.model = model;
+        endEvent = new StopEvent(model, "", model.getShowStopEvent(), this);
+    }
+
+    /**
+     * Prepares the thread to perform an operation on an instance.
+     *
+     * @param demand       int: The demand of the operation
+     * @param service      Microservice: The instance
+     * @param mo           MessageObject: The request
+     * @param operation    Operation: The operation
+     * @param creationTime double: The present time
+     */
+    public void init(int demand, Microservice service, MessageObject mo, Operation operation, double creationTime) {
         this.id = service.getId();
         this.sid = service.getSid();
-        this.tid = model.serviceCPU.get(service.getId()).get(service.getSid()).getExistingThreads().size();
+        this.tid = service.getCPU().getExistingThreads().size();
         this.demand = demand;
-        this.endEvent = end;
         this.service = service;
         this.mobject = mo;
         this.operation = operation;
-        creationTime = model.presentTime().getTimeAsDouble();
+        this.creationTime = creationTime;
+        finishTag = 0;
+        isBlocked = false;
+        dependencyNode = null;
+        timeoutPending = false;
+        ended = false;
     }
 
     public int getId() {
@@ -76,6 +109,49 @@ public class Thread extends Entity {
         this.creationTime = creationTime;
     }
 
+    public double getFinishTag() {
+        return finishTag;
+    }
+
+    public void setFinishTag(double finishTag) {
+        this.finishTag = finishTag;
+    }
+
+    public int getHeapIndex() {
+        return heapIndex;
+    }
+
+    public void setHeapIndex(int heapIndex) {
+        this.heapIndex = heapIndex;
+    }
+
+    /**
+     * @return long: The number of threads that were added to the heap before this thread
+     */
+    public long getHeapOrder() {
+        return heapOrder;
+    }
+
+    public void setHeapOrder(long heapOrder) {
+        this.heapOrder = heapOrder;
+    }
+
+    public int getExistingIndex() {
+        return existingIndex;
+    }
+
+    public void setExistingIndex(int existingIndex) {
+        this.existingIndex = existingIndex;
+    }
+
+    public boolean isWaiting() {
+        return waiting;
+    }
+
+    public void setWaiting(boolean waiting) {
+        this.waiting = waiting;
+    }
+
     public boolean isBlocked() {
         return isBlocked;
     }
@@ -88,6 +164,10 @@ public class Thread extends Entity {
         return this.demand;
     }
 
+    public void setDemand(int demand) {
+        this.demand = demand;
+    }
+
     public void subtractDemand(double value) {
         if(demand - value > 0)
             this.demand -= value;
@@ -99,10 +179,6 @@ public class Thread extends Entity {
         return endEvent;
     }
 
-    public void setEndEvent(StopEvent endEvent) {
-        this.endEvent = endEvent;
-    }
-
     public Microservice getService() {
         return service;
     }
@@ -127,7 +203,50 @@ public class Thread extends Entity {
         this.operation = operation;
     }
 
+    public DependencyNode getDependencyNode() {
+        return dependencyNode;
+    }
+
+    public void setDependencyNode(DependencyNode dependencyNode) {
+        this.dependencyNode = dependencyNode;
+    }
+
+    /**
+     * @return TimeoutEvent: The timeout event of this thread, it is created when it is needed the first time
+     */
+    public TimeoutEvent getTimeoutEvent() {
+        if (timeoutEvent == null) {
+            timeoutEvent = new TimeoutEvent(model, "", false, this);
+        }
+        return timeoutEvent;
+    }
+
+    /**
+     * @return boolean: True if a circuit breaker waits for this thread to finish or to time out
+     */
+    public boolean isTimeoutPending() {
+        return timeoutPending;
+    }
+
+    public void setTimeoutPending(boolean timeoutPending) {
+        this.timeoutPending = timeoutPending;
+    }
+
+    /**
+     * @return boolean: True if the stop event of this thread has been scheduled since it was initialized
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Schedules the stop event of this thread, unless it has already been scheduled.
+     */
     public void scheduleEndEvent() {
-        endEvent.schedule(service, this, mobject);
+        if (ended) {
+            return;
+        }
+        ended = true;
+        endEvent.schedule();
     }
 }
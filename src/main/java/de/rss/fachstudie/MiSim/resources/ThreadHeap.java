@@ -0,0 +1,155 @@
+package de.rss.fachstudie.MiSim.resources;
+
+/**
+ * The <code>ThreadHeap</code> is an indexed binary min-heap of threads ordered by their finish tag.
+ * Every thread stores its own position in the heap, so contains is O(1) and removing a thread or changing its
+ * finish tag is O(log n) without searching the heap.
+ * Threads with the same finish tag are ordered by the time they were added, like the previous linear scan over the
+ * active threads which picked the first of them.
+ */
+public class ThreadHeap {
+    private Thread[] heap;
+    private int size = 0;
+    private long added = 0;
+
+    public ThreadHeap() {
+        heap = new Thread[16];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Thread thread) {
+        int index = thread.getHeapIndex();
+        return index >= 0 && index < size && heap[index] == thread;
+    }
+
+    /**
+     * Returns the thread at the given position of the heap. Only the first thread is ordered, use this to visit all
+     * threads in no particular order.
+     *
+     * @param index int: Position in the heap
+     * @return Thread
+     */
+    public Thread get(int index) {
+        return heap[index];
+    }
+
+    /**
+     * @return Thread: The thread with the smallest finish tag or null if the heap is empty
+     */
+    public Thread peek() {
+        if (size == 0)
+            return null;
+        return heap[0];
+    }
+
+    public void add(Thread thread) {
+        if (size == heap.length) {
+            Thread[] grown = new Thread[heap.length * 2];
+            System.arraycopy(heap, 0, grown, 0, size);
+            heap = grown;
+        }
+        heap[size] = thread;
+        thread.setHeapIndex(size);
+        thread.setHeapOrder(added++);
+        size++;
+        siftUp(size - 1);
+    }
+
+    public Thread poll() {
+        if (size == 0)
+            return null;
+        Thread first = heap[0];
+        removeAt(0);
+        return first;
+    }
+
+    public boolean remove(Thread thread) {
+        if (!contains(thread))
+            return false;
+        removeAt(thread.getHeapIndex());
+        return true;
+    }
+
+    /**
+     * Changes the finish tag of a thread in the heap and restores the heap order.
+     *
+     * @param thread    Thread: A thread that is contained in this heap
+     * @param finishTag double: The new finish tag
+     */
+    public void updateFinishTag(Thread thread, double finishTag) {
+        double old = thread.getFinishTag();
+        thread.setFinishTag(finishTag);
+        if (finishTag < old)
+            siftUp(thread.getHeapIndex());
+        else
+            siftDown(thread.getHeapIndex());
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].setHeapIndex(-1);
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        Thread removed = heap[index];
+        size--;
+        if (index != size) {
+            heap[index] = heap[size];
+            heap[index].setHeapIndex(index);
+            heap[size] = null;
+            siftDown(index);
+            siftUp(index);
+        } else {
+            heap[size] = null;
+        }
+        removed.setHeapIndex(-1);
+    }
+
+    private void siftUp(int index) {
+        Thread thread = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBefore(thread, heap[parent]))
+                break;
+            heap[index] = heap[parent];
+            heap[index].setHeapIndex(index);
+            index = parent;
+        }
+        heap[index] = thread;
+        thread.setHeapIndex(index);
+    }
+
+    private void siftDown(int index) {
+        Thread thread = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && isBefore(heap[right], heap[child]))
+                child = right;
+            if (!isBefore(heap[child], thread))
+                break;
+            heap[index] = heap[child];
+            heap[index].setHeapIndex(index);
+            index = child;
+        }
+        heap[index] = thread;
+        thread.setHeapIndex(index);
+    }
+
+    private static boolean isBefore(Thread a, Thread b) {
+        if (a.getFinishTag() != b.getFinishTag())
+            return a.getFinishTag() < b.getFinishTag();
+        return a.getHeapOrder() < b.getHeapOrder();
+    }
+}
@@ -0,0 +1,363 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import de.rss.fachstudie.MiSim.statistics.Metric;
+
+import java.util.ArrayDeque;
+
+/**
+ * The <code>ThreadScheduler</code> decides when the threads of a cpu are done. It holds the active threads in a
+ * <code>RunQueue</code> together with the threads that wait for the thread pool, and is given the present time by
+ * the cpu, so it doesn't depend on the simulation clock. The cpu is told by its <code>Listener</code> when a thread
+ * is done or rejected and when the next thread will be done.
+ */
+class ThreadScheduler {
+
+    /**
+     * Receives the effects of the scheduler on the cpu.
+     */
+    interface Listener {
+
+        /**
+         * Called before the set of active threads changes.
+         *
+         * @param starting boolean: True if a thread is started, false if one is taken off the cpu
+         */
+        void activeThreadsChanging(boolean starting);
+
+        /**
+         * @param thread Thread: The thread that is done
+         */
+        void threadDone(Thread thread);
+
+        /**
+         * @param thread Thread: The thread that was rejected
+         * @param metric Metric: THREAD_POOL or THREAD_QUEUE, whichever was full
+         */
+        void threadRejected(Thread thread, Metric metric);
+
+        /**
+         * The next thread is done at the given time. Replaces the time scheduled before.
+         *
+         * @param time double: The simulation time
+         */
+        void schedule(double time);
+
+        /**
+         * No thread is active anymore, the time scheduled before is dropped.
+         */
+        void cancel();
+    }
+
+    private CPU.Scheduling scheduling;
+    private int capacity;
+    private Listener listener;
+    private RunQueue runQueue;
+    private boolean scheduled = false;
+
+    private double robinTime = 10;
+    private double lastThreadEntry = 0;
+    private double smallestThread = 0;
+    private Thread threadToEnd;
+
+    private double lastVirtualTimeUpdate = 0;
+
+    private ArrayDeque<Thread> waitingThreads;
+    private boolean hasThreadPool = false;
+    private int threadPoolSize = 0;
+    private boolean hasThreadQueue = false;
+    private int threadQueueSize = 0;
+
+    /**
+     * @param scheduling Scheduling: How the capacity is shared between the active threads
+     * @param capacity   int: The work the cpu computes per second
+     * @param listener   Listener: The cpu
+     */
+    ThreadScheduler(CPU.Scheduling scheduling, int capacity, Listener listener) {
+        this.scheduling = scheduling;
+        this.capacity = capacity;
+        this.listener = listener;
+        runQueue = new RunQueue(scheduling == CPU.Scheduling.ROUND_ROBIN);
+    }
+
+    /**
+     * Limits the number of active threads. Threads that don't fit wait in a queue of the given size.
+     *
+     * @param poolSize  int: The maximum number of active threads
+     * @param queueSize int: The maximum number of waiting threads
+     */
+    void setThreadPool(int poolSize, int queueSize) {
+        threadPoolSize = poolSize;
+        hasThreadPool = true;
+        threadQueueSize = queueSize;
+        waitingThreads = new ArrayDeque<>(queueSize);
+        hasThreadQueue = true;
+    }
+
+    int getActiveThreadCount() {
+        return runQueue.size();
+    }
+
+    /**
+     * @param index int: Position among the active threads
+     * @return Thread: The active thread at the position, in no particular order
+     */
+    Thread getActiveThread(int index) {
+        return runQueue.get(index);
+    }
+
+    int getWaitingThreadCount() {
+        return hasThreadQueue ? waitingThreads.size() : 0;
+    }
+
+    /**
+     * @return boolean: True if the cpu has an active thread
+     */
+    boolean isBusy() {
+        return !runQueue.isEmpty();
+    }
+
+    /**
+     * Adds a thread that wants to be computed.
+     *
+     * @param thread Thread: The thread
+     * @param now    double: The present simulation time
+     */
+    void add(Thread thread, double now) {
+        if (scheduling == CPU.Scheduling.PROCESSOR_SHARING) {
+            addShared(thread, now);
+            return;
+        }
+
+        // update all threads that are currently in the active queue
+        int robins = (int) Math.round((now - lastThreadEntry) * 1000 / robinTime);
+        for (int i = 0; i < robins; i++) {
+            if (runQueue.size() > 0) {
+                Thread activeThread = runQueue.getRobinThread(i);
+                if (runQueue.isFinished(activeThread)) {
+                    listener.threadDone(activeThread);
+                    removeFromRunQueue(activeThread);
+                } else {
+                    runQueue.serveRobin(activeThread, robinTime);
+                }
+            }
+        }
+
+        lastThreadEntry = now;
+
+
+        // check for patterns
+        if (!hasThreadPool || runQueue.size() < threadPoolSize) {
+            // cpu has no thread pool, or the size of the thread pool is big enough
+            startThread(thread);
+        } else {
+            if (hasThreadQueue) {
+                if (thread.isWaiting()) {
+
+                    // the thread already waits
+                } else if (waitingThreads.size() < threadQueueSize) {
+
+                    // a thread queue exists and the size is big enough
+                    waitingThreads.add(thread);
+                    thread.setWaiting(true);
+                } else {
+
+                    // thread waiting queue is too big, send default response
+                    listener.threadRejected(thread, Metric.THREAD_QUEUE);
+                }
+            } else {
+                // thread pool is too big, send default response
+                listener.threadRejected(thread, Metric.THREAD_POOL);
+            }
+        }
+
+        // Shift from waiting queue to the active queue
+        admitWaitingThreads();
+
+        calculateMin(now);
+    }
+
+    /**
+     * Adds a thread to the processor sharing cpu. The virtual clock is brought up to date before the number of active
+     * threads changes, afterwards only the next completion has to be rescheduled.
+     */
+    private void addShared(Thread thread, double now) {
+        if (runQueue.contains(thread) || thread.isWaiting()) {
+            // thread is already being computed or waits for it
+            return;
+        }
+
+        advanceVirtualTime(now);
+
+        if (!hasThreadPool || runQueue.size() < threadPoolSize) {
+            startThread(thread);
+        } else if (hasThreadQueue && waitingThreads.size() < threadQueueSize) {
+            waitingThreads.add(thread);
+            thread.setWaiting(true);
+        } else if (hasThreadQueue) {
+            // thread waiting queue is too big, send default response
+            listener.threadRejected(thread, Metric.THREAD_QUEUE);
+        } else {
+            // thread pool is too big, send default response
+            listener.threadRejected(thread, Metric.THREAD_POOL);
+        }
+
+        admitWaitingThreads();
+        scheduleNextCompletion(now);
+    }
+
+    /**
+     * Called at the time the scheduler gave to the listener, ends the threads that are done.
+     *
+     * @param now double: The present simulation time
+     */
+    void complete(double now) {
+        scheduled = false;
+        if (scheduling == CPU.Scheduling.PROCESSOR_SHARING) {
+            advanceVirtualTime(now);
+
+            // the event was scheduled for the moment the first thread is done, snap to it to avoid rounding errors
+            runQueue.advanceToFirst();
+            endFinishedThreads();
+            admitWaitingThreads();
+            scheduleNextCompletion(now);
+            return;
+        }
+
+        // every active thread has computed the demand of the smallest thread
+        runQueue.advance((int) smallestThread);
+        endFinishedThreads();
+        if (runQueue.contains(threadToEnd)) {
+            listener.threadDone(threadToEnd);
+            removeFromRunQueue(threadToEnd);
+        }
+        calculateMin(now);
+    }
+
+    /**
+     * Removes a thread before it is done. A thread that waits for the thread pool is taken out of the waiting queue.
+     *
+     * @param thread Thread: The thread to remove
+     * @param now    double: The present simulation time
+     */
+    void remove(Thread thread, double now) {
+        if (thread.isWaiting()) {
+            waitingThreads.remove(thread);
+            thread.setWaiting(false);
+            return;
+        }
+        if (!runQueue.contains(thread)) {
+            return;
+        }
+        if (scheduling == CPU.Scheduling.PROCESSOR_SHARING) {
+            advanceVirtualTime(now);
+            removeFromRunQueue(thread);
+            admitWaitingThreads();
+            scheduleNextCompletion(now);
+            return;
+        }
+        removeFromRunQueue(thread);
+    }
+
+    /**
+     * Drops all active threads.
+     */
+    void clear() {
+        listener.activeThreadsChanging(false);
+        runQueue.clear();
+        if (scheduling == CPU.Scheduling.PROCESSOR_SHARING) {
+            cancel();
+        }
+    }
+
+    /**
+     * Puts a thread on the run queue. Its finish tag is the virtual time at which its remaining demand is computed.
+     */
+    private void startThread(Thread thread) {
+        if (runQueue.contains(thread)) {
+            return;
+        }
+        listener.activeThreadsChanging(true);
+        runQueue.add(thread);
+    }
+
+    /**
+     * Takes a thread off the run queue and stores its remaining demand in the thread.
+     */
+    private void removeFromRunQueue(Thread thread) {
+        listener.activeThreadsChanging(false);
+        runQueue.remove(thread);
+    }
+
+    /**
+     * Ends all threads whose finish tag has been reached. Threads with the same finish tag are done at the same
+     * instant and are ended together.
+     */
+    private void endFinishedThreads() {
+        Thread thread;
+        while ((thread = runQueue.peekFinished()) != null) {
+            removeFromRunQueue(thread);
+            listener.threadDone(thread);
+        }
+    }
+
+    private void admitWaitingThreads() {
+        if (hasThreadQueue) {
+            while (!waitingThreads.isEmpty() && runQueue.size() < threadPoolSize) {
+                Thread waiting = waitingThreads.poll();
+                waiting.setWaiting(false);
+                startThread(waiting);
+            }
+        }
+    }
+
+    /**
+     * Advances the virtual clock to the present time. Each active thread received capacity / n units of work per
+     * second since the last update.
+     */
+    private void advanceVirtualTime(double now) {
+        if (!runQueue.isEmpty()) {
+            runQueue.advance((now - lastVirtualTimeUpdate) * capacity / runQueue.size());
+        }
+        lastVirtualTimeUpdate = now;
+    }
+
+    private void scheduleNextCompletion(double now) {
+        if (runQueue.isEmpty()) {
+            cancel();
+            return;
+        }
+
+        double delay = runQueue.getSmallestDemand() * runQueue.size() / capacity;
+        schedule(now + delay, runQueue.peek());
+    }
+
+    private void calculateMin(double now) {
+        Thread smallestThreadInstance = runQueue.peek();
+
+        // schedule to time when smallest thread is done
+        if (smallestThreadInstance != null) {
+            smallestThread = runQueue.getSmallestDemand();
+            double cycleTime = (runQueue.size() * smallestThread) / capacity;
+            schedule(now + cycleTime, smallestThreadInstance);
+        }
+    }
+
+    /**
+     * Schedules the next completion. The thread to end is only taken if nothing was scheduled yet, a rescheduled
+     * completion keeps it.
+     */
+    private void schedule(double time, Thread next) {
+        if (!scheduled) {
+            threadToEnd = next;
+            scheduled = true;
+        }
+        listener.schedule(time);
+    }
+
+    private void cancel() {
+        if (scheduled) {
+            scheduled = false;
+            listener.cancel();
+        }
+    }
+}
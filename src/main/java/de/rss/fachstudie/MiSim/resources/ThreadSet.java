@@ -0,0 +1,64 @@
+package de.rss.fachstudie.MiSim.resources;
+
+/**
+ * The <code>ThreadSet</code> holds the existing threads of a cpu in no particular order. Like the
+ * <code>ThreadHeap</code> every thread stores its own position, so adding and removing a thread is O(1).
+ */
+public class ThreadSet {
+    private Thread[] threads = new Thread[16];
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Thread thread) {
+        int index = thread.getExistingIndex();
+        return index >= 0 && index < size && threads[index] == thread;
+    }
+
+    /**
+     * @param index int: Position in the set
+     * @return Thread
+     */
+    public Thread get(int index) {
+        return threads[index];
+    }
+
+    public void add(Thread thread) {
+        if (contains(thread))
+            return;
+        if (size == threads.length) {
+            Thread[] grown = new Thread[threads.length * 2];
+            System.arraycopy(threads, 0, grown, 0, size);
+            threads = grown;
+        }
+        threads[size] = thread;
+        thread.setExistingIndex(size);
+        size++;
+    }
+
+    public boolean remove(Thread thread) {
+        if (!contains(thread))
+            return false;
+        int index = thread.getExistingIndex();
+        size--;
+        threads[index] = threads[size];
+        threads[index].setExistingIndex(index);
+        threads[size] = null;
+        thread.setExistingIndex(-1);
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            threads[i].setExistingIndex(-1);
+            threads[i] = null;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,109 @@
+package de.rss.fachstudie.MiSim.resources;
+
+/**
+ * The <code>UsageWindow</code> integrates the busy time of a cpu and keeps samples of it for the statistic window.
+ * The samples are kept in a ring buffer, oldest first. Only the samples of the window and the last one before it are
+ * kept, so the memory doesn't grow with the simulated time.
+ *
+ * All times are passed in by the cpu, which also tells whether it is busy, i.e. has an active thread.
+ */
+class UsageWindow {
+    private double[] times = new double[16];
+    private double[] busyTimes = new double[16];
+    private int head = 0;
+    private int count = 0;
+
+    private double busyTime = 0;
+    private double lastBusyUpdate = 0;
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Adds the time since the last update to the busy time, if the cpu was busy.
+     * Has to be called before the cpu changes between busy and idle.
+     *
+     * @param now  double: The present time
+     * @param busy boolean: True if the cpu was busy since the last update
+     */
+    void account(double now, boolean busy) {
+        if (busy) {
+            busyTime += now - lastBusyUpdate;
+        }
+        lastBusyUpdate = now;
+    }
+
+    /**
+     * @return double: The time during which the cpu was busy up to now
+     */
+    double getBusyTime(double now, boolean busy) {
+        account(now, busy);
+        return busyTime;
+    }
+
+    /**
+     * Adds a sample of the busy time.
+     *
+     * @param time   double: The present time
+     * @param window double: The length of the statistic window
+     * @param busy   boolean: True if the cpu was busy since the last update
+     */
+    void collect(double time, double window, boolean busy) {
+        dropBefore(time - window);
+
+        if (count == times.length) {
+            double[] grownTimes = new double[times.length * 2];
+            double[] grownBusyTimes = new double[busyTimes.length * 2];
+            for (int i = 0; i < count; i++) {
+                grownTimes[i] = times[(head + i) % times.length];
+                grownBusyTimes[i] = busyTimes[(head + i) % busyTimes.length];
+            }
+            times = grownTimes;
+            busyTimes = grownBusyTimes;
+            head = 0;
+        }
+        int tail = (head + count) % times.length;
+        times[tail] = time;
+        busyTimes[tail] = getBusyTime(time, busy);
+        count++;
+    }
+
+    /**
+     * @param time   double: The present time
+     * @param window double: The length of the window
+     * @param busy   boolean: True if the cpu was busy since the last update
+     * @return double: The share of time the cpu was busy within the window up to now
+     */
+    double getMeanUsage(double time, double window, boolean busy) {
+        double start = time - window;
+        dropBefore(start);
+
+        if (count == 0 || time <= times[head])
+            return busy ? 1.0 : 0.0;
+
+        // The busy time at the start of the window, interpolated between the two samples around it
+        double startTime = Math.max(start, times[head]);
+        double startBusyTime = busyTimes[head];
+        if (startTime > times[head]) {
+            double nextTime = time, nextBusyTime = getBusyTime(time, busy);
+            if (count > 1) {
+                int next = (head + 1) % times.length;
+                nextTime = times[next];
+                nextBusyTime = busyTimes[next];
+            }
+            startBusyTime += (nextBusyTime - startBusyTime) * (startTime - times[head]) / (nextTime - times[head]);
+        }
+        return (getBusyTime(time, busy) - startBusyTime) / (time - startTime);
+    }
+
+    /**
+     * Drops all samples but the last one before the given time.
+     */
+    void dropBefore(double time) {
+        while (count > 1 && times[(head + 1) % times.length] <= time) {
+            head = (head + 1) % times.length;
+            count--;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import java.util.Arrays;
+
+/**
+ * The <code>ActivityTracker</code> keeps a worklist of the instances whose metrics can change, so the
+ * <code>StatisticEvent</code> doesn't have to visit idle instances. An idle instance is not recorded until it gets
+ * active again, in the report its last values hold until then.
+ */
+public class ActivityTracker {
+    private int[] slots;
+    private boolean[] listed;
+    private int size = 0;
+
+    /**
+     * Instantiate an <code>ActivityTracker</code> in which all instances are active, so that all of them are
+     * recorded at least once.
+     *
+     * @param instances int: The number of instances of all microservices
+     */
+    public ActivityTracker(int instances) {
+        slots = new int[instances];
+        listed = new boolean[instances];
+        for (int slot = 0; slot < instances; slot++) {
+            markActive(slot);
+        }
+    }
+
+    /**
+     * @param slot int: The slot of the instance
+     * @return boolean: True if the instance was idle until now
+     */
+    public boolean markActive(int slot) {
+        if (listed[slot])
+            return false;
+        listed[slot] = true;
+        slots[size++] = slot;
+        return true;
+    }
+
+    public boolean isActive(int slot) {
+        return listed[slot];
+    }
+
+    /**
+     * Empties the worklist. Instances that are still active afterwards have to be marked again.
+     *
+     * @return int[]: The slots of all active instances
+     */
+    public int[] drain() {
+        int[] drained = Arrays.copyOf(slots, size);
+        for (int i = 0; i < size; i++) {
+            listed[slots[i]] = false;
+        }
+        size = 0;
+        return drained;
+    }
+}
@@ -0,0 +1,24 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+/**
+ * The aggregates of a metric over all instances of a microservice, see <code>ServiceAggregates</code>.
+ */
+public enum Aggregate {
+    SUM("sum"),
+    MIN("min"),
+    MEAN("mean"),
+    MAX("max");
+
+    private String label;
+
+    Aggregate(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return String: The name of the aggregate in the report
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,87 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import de.rss.fachstudie.MiSim.entities.Operation;
+
+import java.util.Arrays;
+
+/**
+ * The <code>InstanceStatistics</code> record all metrics of one microservice instance.
+ * Each instance references its own statistics, so events can update them without looking them up.
+ */
+public class InstanceStatistics {
+    private MetricsRecorder recorder;
+    private ActivityTracker activity;
+    private int id;
+    private int slot;
+    private long[] counters = new long[Metric.values().length];
+    private long[] recordedCounters = new long[Metric.values().length];
+
+    /**
+     * @param recorder MetricsRecorder: The recorder of the model
+     * @param activity ActivityTracker: The tracker of the instances the statistic event has to visit
+     * @param id       int: The id of the microservice
+     * @param slot     int: The slot of the instance in the topology
+     */
+    public InstanceStatistics(MetricsRecorder recorder, ActivityTracker activity, int id, int slot) {
+        this.recorder = recorder;
+        this.activity = activity;
+        this.id = id;
+        this.slot = slot;
+        // nothing is recorded yet, so the first interval records all counters
+        Arrays.fill(recordedCounters, -1);
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void update(Metric metric, double value) {
+        recorder.record(metric, slot, value);
+    }
+
+    /**
+     * Records the response time of a finished thread as a metric and in the latency histograms.
+     *
+     * @param operation Operation: The operation the thread performed
+     * @param value     double: The response time
+     */
+    public void updateResponseTime(Operation operation, double value) {
+        recorder.record(Metric.RESPONSE_TIME, slot, value);
+        recorder.recordLatency(id, slot, operation.getId(), value);
+    }
+
+    /**
+     * Counts one more refused task in a counting metric. The total is recorded by <code>recordCounters</code>.
+     */
+    public void increase(Metric metric) {
+        counters[metric.ordinal()]++;
+        activity.markActive(slot);
+    }
+
+    /**
+     * Marks the instance as active, so the statistic event records it until it is idle again.
+     *
+     * @return boolean: True if the instance was idle until now
+     */
+    public boolean markActive() {
+        return activity.markActive(slot);
+    }
+
+    public long getCount(Metric metric) {
+        return counters[metric.ordinal()];
+    }
+
+    /**
+     * Records the totals of all counters that changed since they were recorded the last time. Called once per
+     * statistic interval.
+     */
+    public void recordCounters() {
+        for (Metric metric : Metric.values()) {
+            int m = metric.ordinal();
+            if (metric.isCounter() && counters[m] != recordedCounters[m]) {
+                recorder.record(metric, slot, counters[m]);
+                recordedCounters[m] = counters[m];
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The <code>LatencyHistogram</code> counts response times in logarithmic buckets with a fixed amount of memory,
+ * similar to an HDR histogram. Every power of two is split into 64 linear sub buckets, so a percentile is exact up
+ * to 1/64 of its value. Values of 0 and below, e.g. the response time of a request that failed immediately, are
+ * counted in a separate zero bucket. Recording is O(1) and histograms of different instances, operations or
+ * replications can be merged by adding their counts.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = -16;
+    private static final int MAX_EXPONENT = 31;
+    // bucket 0 counts the values of 0 and below
+    private static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS + 1;
+
+    private long[] counts = new long[BUCKETS];
+    private long totalCount = 0;
+    private double sum = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void record(double value) {
+        counts[index(value)]++;
+        totalCount++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values of another histogram to this one.
+     *
+     * @param other LatencyHistogram: The histogram to merge
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return double: The mean of all values, NaN if the histogram is empty
+     */
+    public double getMean() {
+        return sum / totalCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile double: The percentile between 0 and 100, e.g. 99.9
+     * @return double: The value below which the given percentage of all values lies, NaN if the histogram is empty
+     */
+    public double getPercentile(double percentile) {
+        if (totalCount == 0)
+            return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.max(min, Math.min(max, valueAt(i)));
+        }
+        return max;
+    }
+
+    /**
+     * Writes the histogram, leaving out empty buckets.
+     */
+    void write(DataOutputStream out) throws IOException {
+        int used = 0;
+        for (long count : counts) {
+            if (count > 0)
+                used++;
+        }
+        out.writeLong(totalCount);
+        out.writeDouble(sum);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(used);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    static LatencyHistogram read(DataInputStream in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.totalCount = in.readLong();
+        histogram.sum = in.readDouble();
+        histogram.min = in.readDouble();
+        histogram.max = in.readDouble();
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int index = in.readUnsignedShort();
+            histogram.counts[index] = in.readLong();
+        }
+        return histogram;
+    }
+
+    /**
+     * The bucket of a value: the exponent selects the power of two and the highest bits of the mantissa the sub
+     * bucket. Values of 0 and below are counted in the zero bucket, positive values outside of the range in the
+     * first or last logarithmic bucket.
+     */
+    private static int index(double value) {
+        if (!(value > 0))
+            return 0;
+        int exponent = Math.getExponent(value);
+        if (exponent < MIN_EXPONENT)
+            return 1;
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int subBucket = (int) ((Double.doubleToRawLongBits(value) >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return double: The middle of the bucket, 0 for the zero bucket
+     */
+    private static double valueAt(int index) {
+        if (index == 0)
+            return 0;
+        int exponent = (index - 1) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (index - 1) % SUB_BUCKETS;
+        return Math.scalb(1 + (subBucket + 0.5) / SUB_BUCKETS, exponent);
+    }
+}
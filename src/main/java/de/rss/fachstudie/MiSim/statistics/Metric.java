@@ -0,0 +1,42 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+/**
+ * The metrics that are recorded during the simulation. Most metrics are recorded per microservice instance, the
+ * series of an instance is its slot in the topology. The task queue is recorded per microservice, its series is the
+ * id of the microservice. Counters are incremented without recording and their totals are recorded by the
+ * <code>StatisticEvent</code> once per statistic interval.
+ */
+public enum Metric {
+    ACTIVE_THREADS(false, false),
+    EXISTING_THREADS(false, false),
+    CPU(false, false),
+    RESPONSE_TIME(false, false),
+    THREAD_POOL(false, true),
+    THREAD_QUEUE(false, true),
+    RESOURCE_LIMITER(false, true),
+    CIRCUIT_BREAKER(false, true),
+    WORK_DONE(false, false),
+    TASK_QUEUE(true, false);
+
+    private boolean perService;
+    private boolean counter;
+
+    Metric(boolean perService, boolean counter) {
+        this.perService = perService;
+        this.counter = counter;
+    }
+
+    /**
+     * @return boolean: True if the metric is recorded per microservice instead of per instance
+     */
+    public boolean isPerService() {
+        return perService;
+    }
+
+    /**
+     * @return boolean: True if the metric counts events, like the tasks refused by a pattern
+     */
+    public boolean isCounter() {
+        return counter;
+    }
+}
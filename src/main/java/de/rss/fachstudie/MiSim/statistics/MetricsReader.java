@@ -0,0 +1,226 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The <code>MetricsReader</code> reads a file written by the <code>MetricsRecorder</code> and splits it into the
+ * series of every metric.
+ */
+public class MetricsReader {
+
+    /**
+     * The aggregate of all values a series recorded within one bucket of time.
+     */
+    public static class Bucket {
+        private double time;
+        private double min;
+        private double max;
+        private double mean;
+        private double last;
+        private int count;
+
+        Bucket(double time, double min, double max, double mean, double last, int count) {
+            this.time = time;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.last = last;
+            this.count = count;
+        }
+
+        /**
+         * @return double: The time of the last value in the bucket
+         */
+        public double getTime() {
+            return time;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getLast() {
+            return last;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private HashMap<Long, List<Bucket>> buckets = new HashMap<>();
+    private HashMap<Long, TreeMap<Double, Double>> samples = new HashMap<>();
+    private HashMap<Long, LatencyHistogram> instanceLatency = new HashMap<>();
+    private HashMap<Long, LatencyHistogram> operationLatency = new HashMap<>();
+    private HashMap<Long, LatencyHistogram> serviceLatency = new HashMap<>();
+
+    /**
+     * @param file String: The metrics file
+     */
+    public MetricsReader(String file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MetricsRecorder.MAGIC || in.readInt() != MetricsRecorder.VERSION) {
+                System.out.println("Unknown format of metrics file: " + file);
+                return;
+            }
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException ex) {
+                    break;
+                }
+                int count = in.readInt();
+                if (type == MetricsRecorder.BUCKETS)
+                    readBuckets(in, count);
+                else if (type == MetricsRecorder.RESERVOIR)
+                    readReservoir(in, count);
+                else if (type == MetricsRecorder.HISTOGRAM)
+                    readHistogram(in);
+                else
+                    throw new IOException("Unknown section " + type);
+            }
+        } catch (IOException ex) {
+            System.out.println("Error while reading file: " + file);
+        }
+    }
+
+    private void readBuckets(DataInputStream in, int count) throws IOException {
+        byte[] metric = new byte[count];
+        int[] id = new int[count];
+        double[][] columns = new double[5][count];
+        in.readFully(metric);
+        for (int i = 0; i < count; i++)
+            id[i] = in.readInt();
+        for (double[] column : columns) {
+            for (int i = 0; i < count; i++)
+                column[i] = in.readDouble();
+        }
+        for (int i = 0; i < count; i++) {
+            long key = key(metric[i], id[i]);
+            List<Bucket> list = buckets.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                buckets.put(key, list);
+            }
+            list.add(new Bucket(columns[0][i], columns[1][i], columns[2][i], columns[3][i], columns[4][i],
+                    in.readInt()));
+        }
+    }
+
+    private void readReservoir(DataInputStream in, int count) throws IOException {
+        byte metric = in.readByte();
+        int id = in.readInt();
+        double[] time = new double[count];
+        for (int i = 0; i < count; i++)
+            time[i] = in.readDouble();
+        TreeMap<Double, Double> values = new TreeMap<>();
+        for (int i = 0; i < count; i++)
+            values.put(time[i], in.readDouble());
+        samples.put(key(metric, id), values);
+    }
+
+    private void readHistogram(DataInputStream in) throws IOException {
+        byte scope = in.readByte();
+        int id = in.readInt();
+        int operation = in.readInt();
+        LatencyHistogram histogram = LatencyHistogram.read(in);
+        if (scope == MetricsRecorder.INSTANCE_SCOPE)
+            instanceLatency.put(key(0, id), histogram);
+        else if (scope == MetricsRecorder.SERVICE_SCOPE)
+            serviceLatency.put(key(0, id), histogram);
+        else
+            operationLatency.put(key(id, operation), histogram);
+    }
+
+    /**
+     * @param slot int: The slot of the instance
+     * @return LatencyHistogram: The response times of the instance, empty if it finished no thread
+     */
+    public LatencyHistogram getInstanceLatency(int slot) {
+        LatencyHistogram histogram = instanceLatency.get(key(0, slot));
+        if (histogram == null)
+            return new LatencyHistogram();
+        return histogram;
+    }
+
+    /**
+     * @param id        int: The id of the microservice
+     * @param operation int: The id of the operation within the microservice
+     * @return LatencyHistogram: The response times of the operation over all instances
+     */
+    public LatencyHistogram getOperationLatency(int id, int operation) {
+        LatencyHistogram histogram = operationLatency.get(key(id, operation));
+        if (histogram == null)
+            return new LatencyHistogram();
+        return histogram;
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return LatencyHistogram: The response times of all instances of the microservice
+     */
+    public LatencyHistogram getServiceLatency(int id) {
+        LatencyHistogram histogram = serviceLatency.get(key(0, id));
+        if (histogram == null)
+            return new LatencyHistogram();
+        return histogram;
+    }
+
+    /**
+     * @param metric Metric: The metric
+     * @param id     int: The slot of the instance or the id of the microservice
+     * @return List: The buckets of the series in order of time
+     */
+    public List<Bucket> getBuckets(Metric metric, int id) {
+        List<Bucket> list = buckets.get(key(metric.ordinal(), id));
+        if (list == null)
+            return new ArrayList<>();
+        return list;
+    }
+
+    /**
+     * @param metric Metric: The metric
+     * @param id     int: The slot of the instance or the id of the microservice
+     * @return TreeMap: The last value of every bucket by the time it was recorded
+     */
+    public TreeMap<Double, Double> getSeries(Metric metric, int id) {
+        TreeMap<Double, Double> values = new TreeMap<>();
+        for (Bucket bucket : getBuckets(metric, id)) {
+            values.put(bucket.getTime(), bucket.getLast());
+        }
+        return values;
+    }
+
+    /**
+     * @param metric Metric: The metric, only response times keep samples
+     * @param id     int: The slot of the instance
+     * @return TreeMap: A uniform sample of the raw values of the series by time
+     */
+    public TreeMap<Double, Double> getSamples(Metric metric, int id) {
+        TreeMap<Double, Double> values = samples.get(key(metric.ordinal(), id));
+        if (values == null)
+            return new TreeMap<>();
+        return values;
+    }
+
+    private static long key(int metric, int id) {
+        return ((long) metric << 32) | (id & 0xffffffffL);
+    }
+}
@@ -0,0 +1,492 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.models.Topology;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * The <code>MetricsRecorder</code> writes all metrics of a simulation into one binary file.
+ * Values are downsampled while they are recorded: the simulation time is divided into as many buckets as the
+ * experiment has datapoints, and for every series only the min, max, mean, last value and count of each bucket are
+ * written. The size of the file therefore depends on the resolution of the report, not on the number of requests.
+ * Response times additionally keep a bounded reservoir of raw samples per series for the scatter chart and a
+ * <code>LatencyHistogram</code> per instance, per operation and per microservice for percentiles. Every metric is
+ * also aggregated over the instances of each microservice while it is recorded, see <code>ServiceAggregates</code>.
+ *
+ * The file starts with the magic number and the version of the format, followed by sections. Each section starts
+ * with its type and its number of entries and is written column by column:
+ *
+ * BUCKETS:   byte[n] metric, int[n] series, double[n] time of the last value, double[n] min, double[n] max,
+ *            double[n] mean, double[n] last, int[n] count
+ * RESERVOIR: byte metric, int series, double[n] time, double[n] value
+ * HISTOGRAM: byte scope, int instance slot or microservice id, int operation id (0 in the instance and service
+ *            scope), the histogram
+ *
+ * Use the <code>MetricsReader</code> to read it. The recorder also keeps a summary of every series, the closed buckets,
+ * the samples and the histograms in memory, so the report of the simulation is built from them without reading
+ * the file again. Like a DesmoJ <code>TimeSeries</code>, values recorded after the end
+ * of the simulation are ignored.
+ */
+public class MetricsRecorder {
+    static final int MAGIC = 0x4d695369;
+    static final int VERSION = 3;
+    static final byte BUCKETS = 1;
+    static final byte RESERVOIR = 2;
+    static final byte HISTOGRAM = 3;
+    static final byte INSTANCE_SCOPE = 0;
+    static final byte OPERATION_SCOPE = 1;
+    static final byte SERVICE_SCOPE = 2;
+    private static final int BLOCK_SIZE = 4096;
+    private static final int RESERVOIR_SIZE = 500;
+
+    private MainModel model;
+    private DataOutputStream out;
+    private double bucketWidth;
+
+    // finished buckets that are not written yet
+    private byte[] metrics = new byte[BLOCK_SIZE];
+    private int[] series = new int[BLOCK_SIZE];
+    private double[] times = new double[BLOCK_SIZE];
+    private double[] mins = new double[BLOCK_SIZE];
+    private double[] maxs = new double[BLOCK_SIZE];
+    private double[] means = new double[BLOCK_SIZE];
+    private double[] lasts = new double[BLOCK_SIZE];
+    private int[] counts = new int[BLOCK_SIZE];
+    private int blockCount = 0;
+
+    // the open bucket of every series, indexed by [metric][series]
+    private long[][] bucket;
+    private double[][] bucketMin;
+    private double[][] bucketMax;
+    private double[][] bucketSum;
+    private int[][] bucketCount;
+    private double[][] lastTime;
+    private double[][] lastValues;
+
+    // in memory aggregates for the report, indexed by [metric][series] and created when a series records its first value
+    private SeriesSummary[][] summaries;
+    private SeriesBuffer[][] buffers;
+
+    // response time samples, indexed by the series
+    private double[][] reservoirTimes;
+    private double[][] reservoirValues;
+    private long[] reservoirSeen;
+    private Random reservoirRandom;
+
+    // response time histograms, indexed by the slot of the instance, by [microservice id][operation id] and by the
+    // microservice id
+    private LatencyHistogram[] instanceLatency;
+    private LatencyHistogram[][] operationLatency;
+    private LatencyHistogram[] serviceLatency;
+
+    private ServiceAggregates aggregates;
+
+    /**
+     * @param model     MainModel: The model which provides the simulation time and the number of datapoints
+     * @param file      String: The file to write
+     * @param topology  Topology: The microservices and the slots of their instances
+     */
+    public MetricsRecorder(MainModel model, String file, Topology topology) {
+        this.model = model;
+        int instances = topology.getInstanceCount();
+        int services = topology.getServiceCount();
+
+        if (model.getDatapoints() > 0)
+            bucketWidth = model.getSimulationTime() / model.getDatapoints();
+        else
+            bucketWidth = 1;
+
+        int metricCount = Metric.values().length;
+        bucket = new long[metricCount][];
+        bucketMin = new double[metricCount][];
+        bucketMax = new double[metricCount][];
+        bucketSum = new double[metricCount][];
+        bucketCount = new int[metricCount][];
+        lastTime = new double[metricCount][];
+        lastValues = new double[metricCount][];
+        summaries = new SeriesSummary[metricCount][];
+        buffers = new SeriesBuffer[metricCount][];
+        for (Metric metric : Metric.values()) {
+            int m = metric.ordinal();
+            int size = metric.isPerService() ? services : instances;
+            bucket[m] = new long[size];
+            bucketMin[m] = new double[size];
+            bucketMax[m] = new double[size];
+            bucketSum[m] = new double[size];
+            bucketCount[m] = new int[size];
+            lastTime[m] = new double[size];
+            lastValues[m] = new double[size];
+            summaries[m] = new SeriesSummary[size];
+            buffers[m] = new SeriesBuffer[size];
+        }
+
+        reservoirTimes = new double[instances][];
+        reservoirValues = new double[instances][];
+        reservoirSeen = new long[instances];
+        reservoirRandom = new Random(model.getSeed());
+
+        instanceLatency = new LatencyHistogram[instances];
+        operationLatency = new LatencyHistogram[services][0];
+        serviceLatency = new LatencyHistogram[services];
+
+        int[] firstSlot = new int[services];
+        int[] instanceCount = new int[services];
+        for (int id = 0; id < services; id++) {
+            firstSlot[id] = topology.getSlot(id, 0);
+            instanceCount[id] = topology.getInstanceCount(id);
+        }
+        aggregates = new ServiceAggregates(firstSlot, instanceCount);
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        } catch (IOException ex) {
+            System.out.println("Could not create metrics file: " + file);
+            out = null;
+        }
+    }
+
+    /**
+     * Records a value at the current simulation time.
+     *
+     * @param metric Metric: The metric
+     * @param id     int: The series of the metric, the slot of the instance or the id of the microservice
+     * @param value  double: The value
+     */
+    public void record(Metric metric, int id, double value) {
+        record(metric, id, value, model.presentTime().getTimeAsDouble());
+    }
+
+    /**
+     * Records a value at the given time, which must not lie before the last value of the series.
+     *
+     * @param metric Metric: The metric
+     * @param id     int: The series of the metric, the slot of the instance or the id of the microservice
+     * @param value  double: The value
+     * @param time   double: The simulation time of the value
+     */
+    void record(Metric metric, int id, double value, double time) {
+        if (time > model.getSimulationTime()) {
+            return;
+        }
+
+        int m = metric.ordinal();
+        long slot = (long) (time / bucketWidth);
+        if (bucketCount[m][id] > 0 && bucket[m][id] != slot) {
+            closeBucket(m, id);
+        }
+        if (bucketCount[m][id] == 0) {
+            bucket[m][id] = slot;
+            bucketMin[m][id] = value;
+            bucketMax[m][id] = value;
+            bucketSum[m][id] = 0;
+        }
+        bucketMin[m][id] = Math.min(bucketMin[m][id], value);
+        bucketMax[m][id] = Math.max(bucketMax[m][id], value);
+        bucketSum[m][id] += value;
+        bucketCount[m][id]++;
+        lastTime[m][id] = time;
+        lastValues[m][id] = value;
+
+        if (summaries[m][id] == null) {
+            summaries[m][id] = new SeriesSummary();
+            buffers[m][id] = new SeriesBuffer();
+        }
+        summaries[m][id].record(time, value);
+        if (!metric.isPerService()) {
+            aggregates.update(metric, id, value);
+        }
+
+        if (metric == Metric.RESPONSE_TIME) {
+            sample(id, time, value);
+        }
+    }
+
+    /**
+     * Removes a killed instance from the aggregates of its microservice.
+     *
+     * @param slot int: The slot of the instance
+     */
+    public void removeInstance(int slot) {
+        aggregates.removeInstance(slot);
+    }
+
+    /**
+     * Samples the aggregates of the microservices. Called once per statistic interval.
+     */
+    public void recordServices() {
+        double time = model.presentTime().getTimeAsDouble();
+        if (time > model.getSimulationTime()) {
+            return;
+        }
+        aggregates.sample(time);
+    }
+
+    /**
+     * Counts a response time in the histograms of the instance, of the operation and of the microservice.
+     *
+     * @param service   int: The id of the microservice
+     * @param slot      int: The slot of the instance
+     * @param operation int: The id of the operation within the microservice
+     * @param value     double: The response time
+     */
+    public void recordLatency(int service, int slot, int operation, double value) {
+        if (model.presentTime().getTimeAsDouble() > model.getSimulationTime()) {
+            return;
+        }
+
+        if (instanceLatency[slot] == null) {
+            instanceLatency[slot] = new LatencyHistogram();
+        }
+        instanceLatency[slot].record(value);
+
+        LatencyHistogram[] operations = operationLatency[service];
+        if (operation >= operations.length) {
+            LatencyHistogram[] grown = new LatencyHistogram[operation + 1];
+            System.arraycopy(operations, 0, grown, 0, operations.length);
+            operations = grown;
+            operationLatency[service] = grown;
+        }
+        if (operations[operation] == null) {
+            operations[operation] = new LatencyHistogram();
+        }
+        operations[operation].record(value);
+
+        if (serviceLatency[service] == null) {
+            serviceLatency[service] = new LatencyHistogram();
+        }
+        serviceLatency[service].record(value);
+    }
+
+    /**
+     * Keeps a uniform sample of all response times of a series (reservoir sampling).
+     */
+    private void sample(int id, double time, double value) {
+        if (reservoirTimes[id] == null) {
+            reservoirTimes[id] = new double[RESERVOIR_SIZE];
+            reservoirValues[id] = new double[RESERVOIR_SIZE];
+        }
+        long seen = reservoirSeen[id]++;
+        int index;
+        if (seen < RESERVOIR_SIZE) {
+            index = (int) seen;
+        } else {
+            long candidate = (long) (reservoirRandom.nextDouble() * (seen + 1));
+            if (candidate >= RESERVOIR_SIZE)
+                return;
+            index = (int) candidate;
+        }
+        reservoirTimes[id][index] = time;
+        reservoirValues[id][index] = value;
+    }
+
+    private void closeBucket(int m, int id) {
+        metrics[blockCount] = (byte) m;
+        series[blockCount] = id;
+        times[blockCount] = lastTime[m][id];
+        mins[blockCount] = bucketMin[m][id];
+        maxs[blockCount] = bucketMax[m][id];
+        means[blockCount] = bucketSum[m][id] / bucketCount[m][id];
+        lasts[blockCount] = lastValues[m][id];
+        counts[blockCount] = bucketCount[m][id];
+        blockCount++;
+        buffers[m][id].add(lastTime[m][id], lastValues[m][id]);
+        bucketCount[m][id] = 0;
+        if (blockCount == BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (out != null && blockCount > 0) {
+            try {
+                out.writeByte(BUCKETS);
+                out.writeInt(blockCount);
+                out.write(metrics, 0, blockCount);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeInt(series[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeDouble(times[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeDouble(mins[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeDouble(maxs[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeDouble(means[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeDouble(lasts[i]);
+                for (int i = 0; i < blockCount; i++)
+                    out.writeInt(counts[i]);
+            } catch (IOException ex) {
+                System.out.println("Could not write metrics.");
+            }
+        }
+        blockCount = 0;
+    }
+
+    private void writeReservoirs() throws IOException {
+        for (int id = 0; id < reservoirTimes.length; id++) {
+            if (reservoirTimes[id] == null)
+                continue;
+            int size = (int) Math.min(reservoirSeen[id], RESERVOIR_SIZE);
+            out.writeByte(RESERVOIR);
+            out.writeInt(size);
+            out.writeByte(Metric.RESPONSE_TIME.ordinal());
+            out.writeInt(id);
+            for (int i = 0; i < size; i++)
+                out.writeDouble(reservoirTimes[id][i]);
+            for (int i = 0; i < size; i++)
+                out.writeDouble(reservoirValues[id][i]);
+        }
+    }
+
+    private void writeHistograms() throws IOException {
+        for (int slot = 0; slot < instanceLatency.length; slot++) {
+            if (instanceLatency[slot] != null)
+                writeHistogram(INSTANCE_SCOPE, slot, 0, instanceLatency[slot]);
+        }
+        for (int id = 0; id < operationLatency.length; id++) {
+            for (int operation = 0; operation < operationLatency[id].length; operation++) {
+                if (operationLatency[id][operation] != null)
+                    writeHistogram(OPERATION_SCOPE, id, operation, operationLatency[id][operation]);
+            }
+        }
+        for (int id = 0; id < serviceLatency.length; id++) {
+            if (serviceLatency[id] != null)
+                writeHistogram(SERVICE_SCOPE, id, 0, serviceLatency[id]);
+        }
+    }
+
+    private void writeHistogram(byte scope, int id, int operation, LatencyHistogram histogram) throws IOException {
+        out.writeByte(HISTOGRAM);
+        out.writeInt(1);
+        out.writeByte(scope);
+        out.writeInt(id);
+        out.writeInt(operation);
+        histogram.write(out);
+    }
+
+    /**
+     * Writes the open buckets, the response time samples and histograms and closes the file.
+     */
+    public void close() {
+        for (int m = 0; m < bucketCount.length; m++) {
+            for (int id = 0; id < bucketCount[m].length; id++) {
+                if (bucketCount[m][id] > 0)
+                    closeBucket(m, id);
+            }
+        }
+        flush();
+        if (out != null) {
+            try {
+                writeReservoirs();
+                writeHistograms();
+                out.close();
+            } catch (IOException ex) {
+                System.out.println("Could not close metrics file.");
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * @param metric Metric: The metric
+     * @param id     int: The slot of the instance or the id of the microservice
+     * @return SeriesSummary: The aggregate of all values of the series
+     */
+    public SeriesSummary getSummary(Metric metric, int id) {
+        SeriesSummary summary = summaries[metric.ordinal()][id];
+        if (summary == null)
+            return new SeriesSummary();
+        return summary;
+    }
+
+    /**
+     * Open buckets are only included after <code>close</code>.
+     *
+     * @param metric Metric: The metric
+     * @param id     int: The slot of the instance or the id of the microservice
+     * @return SeriesBuffer: The last value of every bucket at the time it was recorded
+     */
+    public SeriesBuffer getSeries(Metric metric, int id) {
+        SeriesBuffer buffer = buffers[metric.ordinal()][id];
+        if (buffer == null)
+            return new SeriesBuffer();
+        return buffer;
+    }
+
+    /**
+     * @param metric Metric: The metric, only response times keep samples
+     * @param id     int: The slot of the instance
+     * @return SeriesBuffer: A uniform sample of the raw values of the series in order of time
+     */
+    public SeriesBuffer getSamples(Metric metric, int id) {
+        SeriesBuffer samples = new SeriesBuffer();
+        if (metric != Metric.RESPONSE_TIME || reservoirTimes[id] == null)
+            return samples;
+
+        // the reservoir replaces samples at random positions, sort it by time
+        final double[] times = reservoirTimes[id];
+        int size = (int) Math.min(reservoirSeen[id], RESERVOIR_SIZE);
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(times[a], times[b]);
+            }
+        });
+        for (int i : order) {
+            samples.add(times[i], reservoirValues[id][i]);
+        }
+        return samples;
+    }
+
+    /**
+     * @param slot int: The slot of the instance
+     * @return LatencyHistogram: The response times of the instance, empty if it finished no thread
+     */
+    public LatencyHistogram getInstanceLatency(int slot) {
+        if (instanceLatency[slot] == null)
+            return new LatencyHistogram();
+        return instanceLatency[slot];
+    }
+
+    /**
+     * @param id        int: The id of the microservice
+     * @param operation int: The id of the operation within the microservice
+     * @return LatencyHistogram: The response times of the operation over all instances
+     */
+    public LatencyHistogram getOperationLatency(int id, int operation) {
+        if (operation >= operationLatency[id].length || operationLatency[id][operation] == null)
+            return new LatencyHistogram();
+        return operationLatency[id][operation];
+    }
+
+    /**
+     * @param id int: The id of the microservice
+     * @return LatencyHistogram: The response times of all instances of the microservice
+     */
+    public LatencyHistogram getServiceLatency(int id) {
+        if (serviceLatency[id] == null)
+            return new LatencyHistogram();
+        return serviceLatency[id];
+    }
+
+    /**
+     * @return ServiceAggregates: The metrics aggregated over the instances of every microservice
+     */
+    public ServiceAggregates getAggregates() {
+        return aggregates;
+    }
+}
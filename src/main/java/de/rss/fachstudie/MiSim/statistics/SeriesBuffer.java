@@ -0,0 +1,63 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * The <code>SeriesBuffer</code> keeps the values of a series in memory as primitive x/y columns in order of time.
+ * The recorder holds at most one value per datapoint of the report in it, and the report exports the charts from it.
+ */
+public class SeriesBuffer {
+    private double[] times = new double[16];
+    private double[] values = new double[16];
+    private int size = 0;
+
+    public void add(double time, double value) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        times[size] = time;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getTime(int index) {
+        return times[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param time double: A point in time
+     * @return int: The index of the last value recorded at or before the time, -1 if there is none
+     */
+    public int floorIndex(double time) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= time)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return high;
+    }
+
+    /**
+     * @return TreeMap: The values by time, as the charts of the report expect them
+     */
+    public TreeMap<Double, Double> toMap() {
+        TreeMap<Double, Double> map = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(times[i], values[i]);
+        }
+        return map;
+    }
+}
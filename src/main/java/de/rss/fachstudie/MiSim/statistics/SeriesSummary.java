@@ -0,0 +1,77 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+/**
+ * The <code>SeriesSummary</code> aggregates all values of a series while they are recorded, so the report tables
+ * don't have to pass over the series again. Besides the mean of the values it integrates the series over time, a
+ * series is 0 until its first value and holds every value until the next one.
+ */
+public class SeriesSummary {
+    private double first = Double.NEGATIVE_INFINITY;
+    private double last = Double.NEGATIVE_INFINITY;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum = 0;
+    private long count = 0;
+    private double area = 0;
+    private double lastTime = 0;
+
+    /**
+     * @param time  double: The time of the value
+     * @param value double: The value
+     */
+    public void record(double time, double value) {
+        if (count == 0)
+            first = value;
+        else
+            area += last * (time - lastTime);
+        lastTime = time;
+        last = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+        count++;
+    }
+
+    /**
+     * @return double: The first value, negative infinity if nothing was recorded
+     */
+    public double getFirst() {
+        return first;
+    }
+
+    /**
+     * @return double: The last value, negative infinity if nothing was recorded
+     */
+    public double getLast() {
+        return last;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return double: The mean of all values, NaN if nothing was recorded
+     */
+    public double getMean() {
+        return sum / count;
+    }
+
+    /**
+     * @param end double: The end of the series, e.g. the simulation time
+     * @return double: The mean of the series over time from 0 to the end
+     */
+    public double getTimeWeightedMean(double end) {
+        if (count == 0 || end <= 0)
+            return Double.NaN;
+        return (area + last * (end - lastTime)) / end;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,237 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import java.util.Arrays;
+
+/**
+ * The <code>ServiceAggregates</code> aggregate every metric over all instances of a microservice while it is
+ * recorded. For most metrics these are the sum, min, mean and max of the current values of the instances, for
+ * response times the min, mean and max of the values recorded within a statistic interval.
+ *
+ * Sums are updated with every value. Min and max only have to be searched again among the instances of a
+ * microservice when the instance holding them moved away, so sampling the aggregates once per statistic interval
+ * usually costs a constant per microservice and not per instance. Only aggregates that changed since the last
+ * interval are sampled.
+ *
+ * Killed instances are removed from the aggregates, the mean is taken over the live instances only.
+ */
+public class ServiceAggregates {
+    private static final int AGGREGATES = Aggregate.values().length;
+
+    private int[] serviceOf;
+    private int[] firstSlot;
+    private int[] instanceCount;
+    private int[] liveCount;
+    private boolean[] killed;
+
+    // indexed by [metric][slot]
+    private double[][] values;
+
+    // indexed by [metric][microservice id]
+    private double[][] sum;
+    private double[][] min;
+    private double[][] max;
+    private long[][] count;
+    private boolean[][] minStale;
+    private boolean[][] maxStale;
+    private boolean[][] changed;
+
+    // indexed by [metric][microservice id][aggregate] and created when the aggregate is sampled the first time
+    private SeriesSummary[][][] summaries;
+    private SeriesBuffer[][][] buffers;
+
+    /**
+     * @param firstSlot     int[]: The first slot of every microservice
+     * @param instanceCount int[]: The number of instances of every microservice
+     */
+    public ServiceAggregates(int[] firstSlot, int[] instanceCount) {
+        this.firstSlot = firstSlot;
+        this.instanceCount = instanceCount;
+        this.liveCount = instanceCount.clone();
+
+        int services = firstSlot.length;
+        int instances = 0;
+        for (int id = 0; id < services; id++) {
+            instances += instanceCount[id];
+        }
+        serviceOf = new int[instances];
+        killed = new boolean[instances];
+        for (int id = 0; id < services; id++) {
+            Arrays.fill(serviceOf, firstSlot[id], firstSlot[id] + instanceCount[id], id);
+        }
+
+        int metricCount = Metric.values().length;
+        values = new double[metricCount][];
+        sum = new double[metricCount][services];
+        min = new double[metricCount][services];
+        max = new double[metricCount][services];
+        count = new long[metricCount][services];
+        minStale = new boolean[metricCount][services];
+        maxStale = new boolean[metricCount][services];
+        changed = new boolean[metricCount][services];
+        summaries = new SeriesSummary[metricCount][services][];
+        buffers = new SeriesBuffer[metricCount][services][];
+        for (Metric metric : Metric.values()) {
+            if (!metric.isPerService() && metric != Metric.RESPONSE_TIME)
+                values[metric.ordinal()] = new double[instances];
+        }
+    }
+
+    /**
+     * Updates the aggregates of the microservice with a value of one of its instances.
+     *
+     * @param metric Metric: A metric recorded per instance
+     * @param slot   int: The slot of the instance
+     * @param value  double: The value
+     */
+    public void update(Metric metric, int slot, double value) {
+        if (killed[slot])
+            return;
+        int m = metric.ordinal();
+        int id = serviceOf[slot];
+        changed[m][id] = true;
+
+        if (metric == Metric.RESPONSE_TIME) {
+            // response times are events, they are aggregated per interval
+            if (count[m][id] == 0 || value < min[m][id])
+                min[m][id] = value;
+            if (count[m][id] == 0 || value > max[m][id])
+                max[m][id] = value;
+            sum[m][id] += value;
+            count[m][id]++;
+            return;
+        }
+
+        double old = values[m][slot];
+        values[m][slot] = value;
+        sum[m][id] += value - old;
+        if (value <= min[m][id])
+            min[m][id] = value;
+        else if (old == min[m][id])
+            minStale[m][id] = true;
+        if (value >= max[m][id])
+            max[m][id] = value;
+        else if (old == max[m][id])
+            maxStale[m][id] = true;
+    }
+
+    /**
+     * Removes a killed instance from the aggregates of its microservice. Values it records afterwards are ignored.
+     *
+     * @param slot int: The slot of the killed instance
+     */
+    public void removeInstance(int slot) {
+        if (killed[slot])
+            return;
+        killed[slot] = true;
+        int id = serviceOf[slot];
+        liveCount[id]--;
+        for (int m = 0; m < values.length; m++) {
+            if (values[m] == null)
+                continue;
+            double old = values[m][slot];
+            values[m][slot] = 0;
+            sum[m][id] -= old;
+            minStale[m][id] = true;
+            maxStale[m][id] = true;
+            changed[m][id] = true;
+        }
+    }
+
+    /**
+     * Samples the aggregates that changed since the last interval. Called once per statistic interval.
+     *
+     * @param time double: The current simulation time
+     */
+    public void sample(double time) {
+        for (Metric metric : Metric.values()) {
+            if (metric.isPerService())
+                continue;
+            int m = metric.ordinal();
+            for (int id = 0; id < firstSlot.length; id++) {
+                if (!changed[m][id])
+                    continue;
+                changed[m][id] = false;
+
+                if (metric == Metric.RESPONSE_TIME) {
+                    record(m, id, Aggregate.MIN, time, min[m][id]);
+                    record(m, id, Aggregate.MEAN, time, sum[m][id] / count[m][id]);
+                    record(m, id, Aggregate.MAX, time, max[m][id]);
+                    sum[m][id] = 0;
+                    count[m][id] = 0;
+                    continue;
+                }
+
+                if (minStale[m][id] || maxStale[m][id])
+                    rescan(m, id);
+                record(m, id, Aggregate.SUM, time, sum[m][id]);
+                // a microservice without live instances has no min, mean and max
+                if (liveCount[id] == 0)
+                    continue;
+                record(m, id, Aggregate.MIN, time, min[m][id]);
+                record(m, id, Aggregate.MEAN, time, sum[m][id] / liveCount[id]);
+                record(m, id, Aggregate.MAX, time, max[m][id]);
+            }
+        }
+    }
+
+    /**
+     * Searches the min and max among the live instances of a microservice again. The sum is recomputed as well, so
+     * rounding errors of the updates don't add up.
+     */
+    private void rescan(int m, int id) {
+        double newSum = 0, newMin = Double.POSITIVE_INFINITY, newMax = Double.NEGATIVE_INFINITY;
+        for (int slot = firstSlot[id]; slot < firstSlot[id] + instanceCount[id]; slot++) {
+            if (killed[slot])
+                continue;
+            double value = values[m][slot];
+            newSum += value;
+            newMin = Math.min(newMin, value);
+            newMax = Math.max(newMax, value);
+        }
+        sum[m][id] = newSum;
+        min[m][id] = newMin;
+        max[m][id] = newMax;
+        minStale[m][id] = false;
+        maxStale[m][id] = false;
+    }
+
+    private void record(int m, int id, Aggregate aggregate, double time, double value) {
+        if (summaries[m][id] == null) {
+            summaries[m][id] = new SeriesSummary[AGGREGATES];
+            buffers[m][id] = new SeriesBuffer[AGGREGATES];
+        }
+        int a = aggregate.ordinal();
+        if (summaries[m][id][a] == null) {
+            summaries[m][id][a] = new SeriesSummary();
+            buffers[m][id][a] = new SeriesBuffer();
+        }
+        summaries[m][id][a].record(time, value);
+        buffers[m][id][a].add(time, value);
+    }
+
+    /**
+     * @param metric    Metric: A metric recorded per instance
+     * @param id        int: The id of the microservice
+     * @param aggregate Aggregate: The aggregate
+     * @return SeriesSummary: The summary of the aggregate over the simulation
+     */
+    public SeriesSummary getSummary(Metric metric, int id, Aggregate aggregate) {
+        SeriesSummary[] aggregates = summaries[metric.ordinal()][id];
+        if (aggregates == null || aggregates[aggregate.ordinal()] == null)
+            return new SeriesSummary();
+        return aggregates[aggregate.ordinal()];
+    }
+
+    /**
+     * @param metric    Metric: A metric recorded per instance
+     * @param id        int: The id of the microservice
+     * @param aggregate Aggregate: The aggregate
+     * @return SeriesBuffer: The aggregate at every interval it changed in
+     */
+    public SeriesBuffer getSeries(Metric metric, int id, Aggregate aggregate) {
+        SeriesBuffer[] aggregates = buffers[metric.ordinal()][id];
+        if (aggregates == null || aggregates[aggregate.ordinal()] == null)
+            return new SeriesBuffer();
+        return aggregates[aggregate.ordinal()];
+    }
+}
@@ -1,5 +1,7 @@
 package de.rss.fachstudie.MiSim.utils;
 
+import de.rss.fachstudie.MiSim.entities.DependencySampler;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -107,6 +109,14 @@ public class ArchModelValidator {
 
             //walk over all operations
             for(int operation = 0; operation < parser.microservices[microService].getOperations().length; operation++){
+                //the dependencies called by a request are sampled into a bit mask
+                if (parser.microservices[microService].getOperations()[operation].getDependencies().length > DependencySampler.MAX_DEPENDENCIES) {
+                    System.out.println("ERROR MICROSERVICES: Microservice: " + parser.microservices[microService].getName() + " operation: " +
+                            parser.microservices[microService].getOperations()[operation].getName() +
+                            " -- Too many dependencies (at most " + DependencySampler.MAX_DEPENDENCIES + " are possible)");
+                    errorCounter++;
+                }
+
                 //walk over all dependencies
                 for(int dependencie = 0; dependencie < parser.microservices[microService].getOperations()[operation].getDependencies().length; dependencie ++ ) {
 
@@ -0,0 +1,105 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.MessageObject;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashingBalancerTest {
+    private static final int REQUESTS = 2000;
+
+    private ConsistentHashingBalancer balancer;
+    private Instances instances;
+
+    @Before
+    public void setUp() {
+        balancer = new ConsistentHashingBalancer(4);
+        instances = new Instances(4, balancer);
+    }
+
+    private static MessageObject request(long id) {
+        MessageObject request = new MessageObject();
+        request.init(id, "request");
+        return request;
+    }
+
+    private Microservice[] selectAll() {
+        Microservice[] selected = new Microservice[REQUESTS];
+        for (int id = 0; id < REQUESTS; id++) {
+            selected[id] = balancer.select(request(id));
+        }
+        return selected;
+    }
+
+    @Test
+    public void sameRequestSameInstance() {
+        for (int id = 0; id < 100; id++) {
+            assertSame(balancer.select(request(id)), balancer.select(request(id)));
+        }
+    }
+
+    @Test
+    public void everyInstanceOwnsPartOfTheRing() {
+        int[] hits = new int[4];
+        for (Microservice instance : selectAll()) {
+            hits[instance.getSid()]++;
+        }
+        for (int sid = 0; sid < 4; sid++) {
+            assertTrue("instance " + sid + " got " + hits[sid], hits[sid] > REQUESTS / 8);
+        }
+    }
+
+    @Test
+    public void killOnlyMovesRequestsOfKilledInstance() {
+        Microservice[] before = selectAll();
+        balancer.removeInstance(instances.get(2));
+        Microservice[] after = selectAll();
+
+        for (int id = 0; id < REQUESTS; id++) {
+            assertNotSame(instances.get(2), after[id]);
+            if (before[id] != instances.get(2))
+                assertSame(before[id], after[id]);
+        }
+    }
+
+    @Test
+    public void lookupWrapsAroundTheRing() {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        Microservice owner = null;
+        for (int sid = 0; sid < 4; sid++) {
+            for (int point = 0; point < ConsistentHashingBalancer.POINTS_PER_INSTANCE; point++) {
+                long hash = balancer.pointHash(instances.get(sid), point);
+                last = Math.max(last, hash);
+                if (hash < first) {
+                    first = hash;
+                    owner = instances.get(sid);
+                }
+            }
+        }
+
+        // a key behind the last point of the ring belongs to the first point
+        long id = 0;
+        while (ConsistentHashingBalancer.mix(id) <= last) {
+            id++;
+        }
+        assertSame(owner, balancer.select(request(id)));
+
+        // only one instance left: every key wraps around to it
+        for (int sid = 0; sid < 4; sid++) {
+            if (instances.get(sid) != owner)
+                balancer.removeInstance(instances.get(sid));
+        }
+        for (Microservice instance : selectAll()) {
+            assertSame(owner, instance);
+        }
+
+        balancer.removeInstance(owner);
+        assertNull(balancer.select(request(id)));
+    }
+}
@@ -0,0 +1,45 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.models.ModelFixture;
+import de.rss.fachstudie.MiSim.resources.CPU;
+import de.rss.fachstudie.MiSim.resources.Thread;
+
+/**
+ * Creates the instances of a single microservice with their cpus, so the load of an instance can be changed by
+ * adding existing threads to its cpu.
+ */
+class Instances {
+    private MainModel model;
+    private Microservice[] instances;
+
+    Instances(int count, LoadBalancer balancer) {
+        ModelFixture fixture = new ModelFixture();
+        model = fixture.getModel();
+        fixture.build(fixture.service("service", count)).setLoadBalancer(0, balancer);
+
+        instances = new Microservice[count];
+        for (int sid = 0; sid < count; sid++) {
+            instances[sid] = fixture.instance(0, sid);
+            balancer.addInstance(instances[sid]);
+        }
+    }
+
+    Microservice get(int sid) {
+        return instances[sid];
+    }
+
+    /**
+     * Sets the number of existing threads of an instance without reporting it to the load balancer.
+     */
+    void setLoad(int sid, int threads) {
+        CPU cpu = instances[sid].getCPU();
+        while (cpu.getExistingThreads().size() > threads) {
+            cpu.getExistingThreads().remove(cpu.getExistingThreads().get(0));
+        }
+        while (cpu.getExistingThreads().size() < threads) {
+            cpu.getExistingThreads().add(new Thread(model));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.rss.fachstudie.MiSim.balancing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LeastConnectionsBalancerTest {
+    private LeastConnectionsBalancer balancer;
+    private Instances instances;
+
+    @Before
+    public void setUp() {
+        balancer = new LeastConnectionsBalancer(5);
+        instances = new Instances(5, balancer);
+    }
+
+    private void setLoad(int sid, int threads) {
+        instances.setLoad(sid, threads);
+        balancer.loadChanged(instances.get(sid));
+    }
+
+    @Test
+    public void tiesGoToLowestSid() {
+        assertSame(instances.get(0), balancer.select(null));
+        setLoad(0, 1);
+        assertSame(instances.get(1), balancer.select(null));
+    }
+
+    @Test
+    public void reordersWhenLoadChanges() {
+        for (int sid = 0; sid < 5; sid++) {
+            setLoad(sid, 5 - sid);
+        }
+        assertSame(instances.get(4), balancer.select(null));
+
+        // the selected instance gets busier and moves down
+        setLoad(4, 10);
+        assertSame(instances.get(3), balancer.select(null));
+
+        // an instance at the bottom gets idle and moves up
+        setLoad(0, 0);
+        assertSame(instances.get(0), balancer.select(null));
+    }
+
+    @Test
+    public void selectsLeastLoadedAfterRandomChanges() {
+        Random random = new Random(3);
+        int[] load = new int[5];
+        for (int change = 0; change < 1000; change++) {
+            int sid = random.nextInt(5);
+            load[sid] = random.nextInt(8);
+            setLoad(sid, load[sid]);
+
+            int expected = 0;
+            for (int other = 1; other < 5; other++) {
+                if (load[other] < load[expected])
+                    expected = other;
+            }
+            assertSame(instances.get(expected), balancer.select(null));
+        }
+    }
+
+    @Test
+    public void killedInstancesAreNotSelected() {
+        setLoad(1, 1);
+        setLoad(2, 2);
+        setLoad(3, 3);
+        setLoad(4, 4);
+
+        balancer.removeInstance(instances.get(0));
+        assertSame(instances.get(1), balancer.select(null));
+        balancer.removeInstance(instances.get(2));
+        balancer.removeInstance(instances.get(1));
+        assertSame(instances.get(3), balancer.select(null));
+
+        // changes of a killed instance are ignored, removing it twice has no effect
+        setLoad(0, 0);
+        balancer.removeInstance(instances.get(0));
+        assertSame(instances.get(3), balancer.select(null));
+
+        balancer.removeInstance(instances.get(4));
+        balancer.removeInstance(instances.get(3));
+        assertNull(balancer.select(null));
+    }
+
+    @Test
+    public void removingFromTheMiddleKeepsHeapOrder() {
+        for (int sid = 0; sid < 5; sid++) {
+            setLoad(sid, sid);
+        }
+        // the last heap entry replaces the removed one and has to move up
+        balancer.removeInstance(instances.get(1));
+        setLoad(0, 9);
+        assertSame(instances.get(2), balancer.select(null));
+        setLoad(2, 9);
+        assertSame(instances.get(3), balancer.select(null));
+    }
+}
@@ -0,0 +1,131 @@
+package de.rss.fachstudie.MiSim.entities;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.models.ModelFixture;
+import de.rss.fachstudie.MiSim.resources.Thread;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestPoolTest {
+    private MainModel model;
+    private Operation operation;
+    private Microservice instance;
+
+    @Before
+    public void setUp() {
+        ModelFixture fixture = new ModelFixture();
+        model = fixture.getModel();
+        operation = fixture.operation("op", 10);
+        fixture.build(fixture.service("service", 1, operation));
+        instance = fixture.instance(0, 0);
+    }
+
+    private RequestPool pool(boolean pooling) {
+        model.setRequestPooling(String.valueOf(pooling));
+        return new RequestPool(model);
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    }
+
+    @Test
+    public void releasedThreadsAndMessageObjectsAreReused() {
+        RequestPool pool = pool(true);
+        MessageObject mo = pool.obtainMessageObject("request");
+        Thread first = pool.obtainThread(operation, instance, mo, 0);
+        Thread second = pool.obtainThread(operation, instance, mo, 0);
+
+        pool.release(first);
+        // the request still has a thread
+        assertNotSame(mo, pool.obtainMessageObject("other"));
+        pool.release(second);
+
+        MessageObject reused = pool.obtainMessageObject("next");
+        assertSame(mo, reused);
+        assertEquals("next", reused.getName());
+        Set<Thread> released = identitySet();
+        released.add(first);
+        released.add(second);
+        Thread a = pool.obtainThread(operation, instance, reused, 5);
+        Thread b = pool.obtainThread(operation, instance, reused, 5);
+        assertTrue(released.contains(a));
+        assertTrue(released.contains(b));
+        assertNotSame(a, b);
+        assertSame(reused, a.getMobject());
+        assertEquals(5, a.getCreationTime(), 0);
+        assertFalse(a.isEnded());
+    }
+
+    @Test
+    public void objectsAreNeverHandedOutTwice() {
+        RequestPool pool = pool(true);
+        Set<Thread> inUse = identitySet();
+        Set<MessageObject> requestsInUse = identitySet();
+
+        // keep some requests and threads while others are released and reused
+        Thread[] kept = new Thread[50];
+        for (int round = 0; round < 50; round++) {
+            MessageObject mo = pool.obtainMessageObject("request");
+            assertTrue(requestsInUse.add(mo));
+            Thread thread = pool.obtainThread(operation, instance, mo, round);
+            assertTrue(inUse.add(thread));
+            Thread other = pool.obtainThread(operation, instance, mo, round);
+            assertTrue(inUse.add(other));
+            kept[round] = other;
+
+            pool.release(thread);
+            // releasing twice must not put the thread into the pool twice
+            pool.release(thread);
+            inUse.remove(thread);
+            if (round % 2 == 0) {
+                pool.release(other);
+                pool.release(other);
+                inUse.remove(other);
+                requestsInUse.remove(mo);
+            }
+        }
+        for (Thread thread : kept) {
+            assertEquals(inUse.contains(thread), thread.getMobject() != null);
+        }
+    }
+
+    @Test
+    public void withoutPoolingNothingIsReused() {
+        RequestPool pool = pool(false);
+        MessageObject mo = pool.obtainMessageObject("request");
+        Thread thread = pool.obtainThread(operation, instance, mo, 0);
+        pool.release(thread);
+
+        assertNull(thread.getMobject());
+        MessageObject next = pool.obtainMessageObject("next");
+        assertNotSame(mo, next);
+        assertNotSame(thread, pool.obtainThread(operation, instance, next, 0));
+    }
+
+    @Test
+    public void stopEventOfReleasedThreadIsIgnored() {
+        RequestPool pool = pool(true);
+        MessageObject mo = pool.obtainMessageObject("request");
+        Thread thread = pool.obtainThread(operation, instance, mo, 0);
+        thread.scheduleEndEvent();
+        assertTrue(thread.isEnded());
+        pool.release(thread);
+
+        // a second stop event must neither record statistics nor release the thread again
+        thread.getEndEvent().eventRoutine();
+        assertSame(thread, pool.obtainThread(operation, instance, pool.obtainMessageObject("next"), 0));
+        assertNotSame(thread, pool.obtainThread(operation, instance, pool.obtainMessageObject("other"), 0));
+    }
+}
@@ -0,0 +1,52 @@
+package de.rss.fachstudie.MiSim.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReportWriterTest {
+
+    private static String write(double precision, double... values) throws IOException {
+        StringWriter out = new StringWriter();
+        ReportWriter writer = new ReportWriter(out, precision);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writer.write(values[i]);
+        }
+        writer.close();
+        return out.toString();
+    }
+
+    @Test
+    public void roundsToPrecisionWithoutTrailingZeros() throws IOException {
+        assertEquals("0,1,-1,2.5,0.125,3.14159,-0.00001", write(100000, 0, 1, -1, 2.5, 0.125, 3.141592, -0.00001));
+        assertEquals("0.1,0.12,10", write(100, 0.1, 0.123, 9.999));
+        assertEquals("12", write(1, 12.4));
+    }
+
+    @Test
+    public void nonFiniteValuesAreNull() throws IOException {
+        assertEquals("null,null,null,1", write(100000, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, 1));
+    }
+
+    @Test
+    public void numbersTooLargeForTheScaledFormat() throws IOException {
+        assertEquals("1.0E20", write(100000, 1e20));
+        // a precision that is not a power of ten
+        assertEquals("0.5", write(2, 0.6));
+    }
+
+    @Test
+    public void writesIntegers() throws IOException {
+        StringWriter out = new StringWriter();
+        ReportWriter writer = new ReportWriter(out, 100000);
+        writer.write(0L).write(',').write(-42L).write(',').write(Long.MIN_VALUE).write(',').write(Long.MAX_VALUE);
+        writer.close();
+        assertEquals("0,-42," + Long.MIN_VALUE + "," + Long.MAX_VALUE, out.toString());
+    }
+}
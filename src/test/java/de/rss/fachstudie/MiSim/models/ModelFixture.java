@@ -0,0 +1,75 @@
+package de.rss.fachstudie.MiSim.models;
+
+import de.rss.fachstudie.MiSim.entities.Dependency;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import de.rss.fachstudie.MiSim.entities.Operation;
+import de.rss.fachstudie.MiSim.entities.patterns.Pattern;
+import de.rss.fachstudie.MiSim.resources.CPU;
+
+/**
+ * Builds a model with a topology for the tests, without an experiment. Microservices are described as the parser
+ * would, then the topology is built from them and the instances are created with their cpus.
+ */
+public class ModelFixture {
+    private MainModel model = new MainModel(null, "test", false, false);
+
+    public MainModel getModel() {
+        return model;
+    }
+
+    /**
+     * @param name         String: The name of the operation
+     * @param demand       int: The cpu demand of the operation
+     * @param dependencies Dependency: The operations it calls
+     * @return Operation: A new operation
+     */
+    public Operation operation(String name, int demand, Dependency... dependencies) {
+        Operation operation = new Operation(model, "", false);
+        operation.setName(name);
+        operation.setDemand(demand);
+        operation.setDependencies(dependencies);
+        return operation;
+    }
+
+    /**
+     * @param name       String: The name of the microservice
+     * @param instances  int: The number of instances
+     * @param operations Operation: The operations of the microservice
+     * @return Microservice: The description of a microservice with a capacity of 100 and without patterns
+     */
+    public Microservice service(String name, int instances, Operation... operations) {
+        Microservice service = new Microservice();
+        service.setName(name);
+        service.setCapacity(100);
+        service.setInstances(instances);
+        service.setOperations(operations);
+        service.setPatterns(new Pattern[0]);
+        return service;
+    }
+
+    /**
+     * Builds the topology of the model, the ids of the microservices are their positions.
+     *
+     * @param services Microservice: The descriptions of the microservices
+     * @return Topology: The topology
+     */
+    public Topology build(Microservice... services) {
+        model.topology = new Topology(services);
+        return model.topology;
+    }
+
+    /**
+     * Creates an instance with its cpu and adds it to the topology. The load balancer of the microservice has to be
+     * set before, the cpu looks it up.
+     *
+     * @param id  int: The id of the microservice
+     * @param sid int: The number of the instance
+     * @return Microservice: The instance
+     */
+    public Microservice instance(int id, int sid) {
+        Microservice instance = new Microservice(model.topology.getTemplate(id), sid);
+        instance.setCPU(new CPU(model, "", false, instance));
+        model.topology.setInstance(id, sid, instance);
+        return instance;
+    }
+}
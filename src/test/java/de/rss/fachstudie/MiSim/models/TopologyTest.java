@@ -0,0 +1,49 @@
+package de.rss.fachstudie.MiSim.models;
+
+import de.rss.fachstudie.MiSim.entities.Dependency;
+import de.rss.fachstudie.MiSim.entities.DependencySampler;
+import de.rss.fachstudie.MiSim.entities.Microservice;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TopologyTest {
+    private ModelFixture fixture;
+
+    @Before
+    public void setUp() {
+        fixture = new ModelFixture();
+    }
+
+    private Microservice service(int dependencies) {
+        Dependency[] calls = new Dependency[dependencies];
+        for (int d = 0; d < dependencies; d++) {
+            calls[d] = new Dependency("service", "op");
+        }
+        return fixture.service("service", 1, fixture.operation("op", 0, calls));
+    }
+
+    @Test
+    public void resolvesMaximumNumberOfDependencies() {
+        Microservice service = service(DependencySampler.MAX_DEPENDENCIES);
+        new Topology(new Microservice[]{service});
+
+        Dependency last = service.getOperations()[0].getDependencies()[DependencySampler.MAX_DEPENDENCIES - 1];
+        assertEquals(0, last.getServiceId());
+        assertSame(service.getOperations()[0], last.getTargetOperation());
+    }
+
+    @Test
+    public void rejectsTooManyDependencies() {
+        try {
+            new Topology(new Microservice[]{service(DependencySampler.MAX_DEPENDENCIES + 1)});
+            fail("an operation with 65 dependencies was accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("op of microservice service has 65 dependencies"));
+        }
+    }
+}
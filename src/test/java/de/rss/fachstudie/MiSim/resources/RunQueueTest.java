@@ -0,0 +1,38 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RunQueueTest {
+
+    @Test
+    public void removeStoresRemainingDemand() {
+        MainModel model = new MainModel(null, "test", false, false);
+        RunQueue runQueue = new RunQueue(false);
+        Thread a = new Thread(model), b = new Thread(model);
+        a.setDemand(30);
+        b.setDemand(50);
+        runQueue.add(a);
+        runQueue.advance(10);
+        runQueue.add(b);
+
+        assertSame(a, runQueue.peek());
+        assertEquals(20, runQueue.getSmallestDemand(), 0);
+        assertNull(runQueue.peekFinished());
+
+        runQueue.advance(12.5);
+        runQueue.remove(b);
+        assertEquals(38, b.getDemand());
+        assertFalse(runQueue.contains(b));
+
+        runQueue.advance(7.5);
+        assertSame(a, runQueue.peekFinished());
+        runQueue.remove(a);
+        assertEquals(0, a.getDemand());
+    }
+}
@@ -0,0 +1,138 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadHeapTest {
+    private MainModel model;
+    private ThreadHeap heap;
+
+    @Before
+    public void setUp() {
+        model = new MainModel(null, "test", false, false);
+        heap = new ThreadHeap();
+    }
+
+    private Thread thread(double finishTag) {
+        Thread thread = new Thread(model);
+        thread.setFinishTag(finishTag);
+        return thread;
+    }
+
+    private double[] drain() {
+        double[] tags = new double[heap.size()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = heap.poll().getFinishTag();
+        }
+        return tags;
+    }
+
+    @Test
+    public void pollsInOrderOfFinishTag() {
+        Random random = new Random(42);
+        double[] expected = new double[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextInt(50);
+            heap.add(thread(expected[i]));
+        }
+        Arrays.sort(expected);
+
+        assertEquals(100, heap.size());
+        assertEquals(expected[0], heap.peek().getFinishTag(), 0);
+        assertTrue(Arrays.equals(expected, drain()));
+        assertTrue(heap.isEmpty());
+        assertNull(heap.poll());
+    }
+
+    @Test
+    public void removeKeepsOrder() {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Thread thread = thread((i * 7) % 20);
+            threads.add(thread);
+            heap.add(thread);
+        }
+
+        // remove the first, a leaf and some in between
+        Thread first = heap.peek();
+        assertTrue(heap.remove(first));
+        assertTrue(heap.remove(threads.get(19)));
+        assertTrue(heap.remove(threads.get(5)));
+        assertTrue(heap.remove(threads.get(11)));
+
+        assertFalse(heap.contains(first));
+        assertEquals(-1, first.getHeapIndex());
+        assertFalse(heap.remove(first));
+        assertEquals(16, heap.size());
+        for (Thread thread : threads) {
+            if (thread != first && thread != threads.get(19) && thread != threads.get(5) && thread != threads.get(11))
+                assertTrue(heap.contains(thread));
+        }
+
+        double[] tags = drain();
+        for (int i = 1; i < tags.length; i++) {
+            assertTrue(tags[i - 1] <= tags[i]);
+        }
+    }
+
+    @Test
+    public void updateFinishTagMovesThreadUpAndDown() {
+        Thread a = thread(10), b = thread(20), c = thread(30), d = thread(40);
+        heap.add(a);
+        heap.add(b);
+        heap.add(c);
+        heap.add(d);
+
+        heap.updateFinishTag(d, 5);
+        assertSame(d, heap.peek());
+
+        heap.updateFinishTag(d, 35);
+        assertSame(a, heap.peek());
+
+        heap.updateFinishTag(a, 25);
+        assertSame(b, heap.poll());
+        assertSame(a, heap.poll());
+        assertSame(c, heap.poll());
+        assertSame(d, heap.poll());
+    }
+
+    @Test
+    public void equalFinishTagsKeepOrderOfAdding() {
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = thread(5);
+            heap.add(threads[i]);
+        }
+        heap.add(thread(9));
+        heap.updateFinishTag(threads[3], 9);
+        heap.updateFinishTag(threads[3], 5);
+
+        for (Thread thread : threads) {
+            assertSame(thread, heap.poll());
+        }
+    }
+
+    @Test
+    public void clearResetsHeapIndices() {
+        Thread a = thread(1), b = thread(2);
+        heap.add(a);
+        heap.add(b);
+        heap.clear();
+
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(a));
+        assertEquals(-1, b.getHeapIndex());
+    }
+}
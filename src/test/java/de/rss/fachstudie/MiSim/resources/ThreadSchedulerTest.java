@@ -0,0 +1,313 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.statistics.Metric;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the <code>ThreadScheduler</code> of the cpu with a small loop in place of the DesmoJ scheduler: threads are
+ * added at their arrival time and the scheduler is completed at the time it asked for.
+ */
+public class ThreadSchedulerTest {
+    private static final double ROBIN_TIME = 10;
+    private static final double DELTA = 1e-9;
+
+    /**
+     * A cpu that is driven by <code>run</code>.
+     */
+    private interface DrivenCpu {
+        void addThread(int thread, int demand, double now);
+
+        /**
+         * @return double: The time the cpu is scheduled for, NaN if it isn't scheduled
+         */
+        double getEventTime();
+
+        void eventRoutine(double now);
+
+        double[] getCompletions();
+    }
+
+    /**
+     * The previous round robin cpu: the demand of every active thread is decreased on every event and the smallest
+     * demand is searched by scanning all active threads.
+     */
+    private static class LinearScanCpu implements DrivenCpu {
+        private int capacity;
+        private double[] completions;
+        private int[] demands;
+        private List<Integer> active = new ArrayList<>();
+        private double lastThreadEntry = 0;
+        private double smallestThread = 0;
+        private int threadToEnd = -1;
+        private double eventTime = Double.NaN;
+
+        LinearScanCpu(int capacity, int threads) {
+            this.capacity = capacity;
+            completions = new double[threads];
+            demands = new int[threads];
+        }
+
+        private void subtractDemand(int thread, double value) {
+            if (demands[thread] - value > 0)
+                demands[thread] -= value;
+            else
+                demands[thread] = 0;
+        }
+
+        @Override
+        public void addThread(int thread, int demand, double now) {
+            demands[thread] = demand;
+            int robins = (int) Math.round((now - lastThreadEntry) * 1000 / ROBIN_TIME);
+            for (int i = 0; i < robins; i++) {
+                if (active.size() > 0) {
+                    Integer activeThread = active.get(i % active.size());
+                    if (demands[activeThread] == 0) {
+                        completions[activeThread] = now;
+                        active.remove(activeThread);
+                    } else {
+                        subtractDemand(activeThread, ROBIN_TIME);
+                    }
+                }
+            }
+            lastThreadEntry = now;
+            active.add(thread);
+            calculateMin(now);
+        }
+
+        @Override
+        public double getEventTime() {
+            return eventTime;
+        }
+
+        @Override
+        public void eventRoutine(double now) {
+            eventTime = Double.NaN;
+            for (Integer thread : new ArrayList<>(active)) {
+                subtractDemand(thread, (int) smallestThread);
+                if (demands[thread] == 0 || thread == threadToEnd) {
+                    completions[thread] = now;
+                    active.remove(thread);
+                }
+            }
+            calculateMin(now);
+        }
+
+        @Override
+        public double[] getCompletions() {
+            return completions;
+        }
+
+        private void calculateMin(double now) {
+            if (active.isEmpty())
+                return;
+            int smallestThreadInstance = active.get(0);
+            smallestThread = Double.POSITIVE_INFINITY;
+            for (int thread : active) {
+                if (demands[thread] < smallestThread) {
+                    smallestThread = demands[thread];
+                    smallestThreadInstance = thread;
+                }
+            }
+            double cycleTime = (active.size() * smallestThread) / capacity;
+            if (Double.isNaN(eventTime))
+                threadToEnd = smallestThreadInstance;
+            eventTime = now + cycleTime;
+        }
+    }
+
+    /**
+     * Stands in for the cpu: records the time every thread is done or rejected and the time the scheduler asked to be
+     * completed.
+     */
+    private static class SchedulerCpu implements DrivenCpu, ThreadScheduler.Listener {
+        private ThreadScheduler scheduler;
+        private Thread[] threads;
+        private double[] completions;
+        private Metric[] rejections;
+        private double now = 0;
+        private double eventTime = Double.NaN;
+
+        SchedulerCpu(CPU.Scheduling scheduling, int capacity, int threads) {
+            scheduler = new ThreadScheduler(scheduling, capacity, this);
+            MainModel model = new MainModel(null, "test", false, false);
+            this.threads = new Thread[threads];
+            completions = new double[threads];
+            Arrays.fill(completions, Double.NaN);
+            rejections = new Metric[threads];
+            for (int i = 0; i < threads; i++) {
+                this.threads[i] = new Thread(model);
+                this.threads[i].setTid(i);
+            }
+        }
+
+        @Override
+        public void addThread(int thread, int demand, double now) {
+            this.now = now;
+            threads[thread].setDemand(demand);
+            scheduler.add(threads[thread], now);
+        }
+
+        @Override
+        public double getEventTime() {
+            return eventTime;
+        }
+
+        @Override
+        public void eventRoutine(double now) {
+            this.now = now;
+            eventTime = Double.NaN;
+            scheduler.complete(now);
+        }
+
+        @Override
+        public double[] getCompletions() {
+            return completions;
+        }
+
+        @Override
+        public void activeThreadsChanging(boolean starting) {
+        }
+
+        @Override
+        public void threadDone(Thread thread) {
+            completions[thread.getTid()] = now;
+        }
+
+        @Override
+        public void threadRejected(Thread thread, Metric metric) {
+            completions[thread.getTid()] = now;
+            rejections[thread.getTid()] = metric;
+        }
+
+        @Override
+        public void schedule(double time) {
+            eventTime = time;
+        }
+
+        @Override
+        public void cancel() {
+            eventTime = Double.NaN;
+        }
+    }
+
+    /**
+     * Starts the threads at the given times and dispatches the events of the cpu until all threads are done.
+     * Threads that arrive at the same time as an event of the cpu are added first.
+     */
+    private static void run(DrivenCpu cpu, double[] arrivals, int[] demands) {
+        int next = 0;
+        while (next < arrivals.length || !Double.isNaN(cpu.getEventTime())) {
+            double eventTime = cpu.getEventTime();
+            if (next < arrivals.length && (Double.isNaN(eventTime) || arrivals[next] <= eventTime)) {
+                cpu.addThread(next, demands[next], arrivals[next]);
+                next++;
+            } else {
+                cpu.eventRoutine(eventTime);
+            }
+        }
+    }
+
+    private void assertSameCompletionsAsLinearScan(int capacity, double[] arrivals, int[] demands) {
+        LinearScanCpu linear = new LinearScanCpu(capacity, arrivals.length);
+        SchedulerCpu scheduler = new SchedulerCpu(CPU.Scheduling.ROUND_ROBIN, capacity, arrivals.length);
+        run(linear, arrivals, demands);
+        run(scheduler, arrivals, demands);
+        assertArrayEquals(linear.getCompletions(), scheduler.getCompletions(), DELTA);
+    }
+
+    @Test
+    public void roundRobinHasSameCompletionTimesAsLinearScan() {
+        Random random = new Random(7);
+        for (int run = 0; run < 500; run++) {
+            int threads = 1 + random.nextInt(60);
+            double[] arrivals = new double[threads];
+            int[] demands = new int[threads];
+            for (int i = 0; i < threads; i++) {
+                arrivals[i] = random.nextDouble() * 2;
+                demands[i] = 1 + random.nextInt(300);
+            }
+            Arrays.sort(arrivals);
+            assertSameCompletionsAsLinearScan(100 + random.nextInt(1000), arrivals, demands);
+        }
+    }
+
+    @Test
+    public void roundRobinHasSameCompletionTimesForEqualDemands() {
+        // threads that finish at the same instant are ended by the same event
+        double[] arrivals = {0, 0, 0, 0.01, 0.01, 0.5};
+        int[] demands = {100, 100, 100, 50, 50, 100};
+        assertSameCompletionsAsLinearScan(1000, arrivals, demands);
+    }
+
+    @Test
+    public void sharedEqualDemandsFinishTogether() {
+        // n threads with the same demand get capacity / n each and are done after n * demand / capacity
+        int threads = 4, demand = 100, capacity = 1000;
+        SchedulerCpu cpu = new SchedulerCpu(CPU.Scheduling.PROCESSOR_SHARING, capacity, threads);
+        double[] arrivals = new double[threads];
+        int[] demands = new int[threads];
+        Arrays.fill(demands, demand);
+        run(cpu, arrivals, demands);
+
+        double[] expected = new double[threads];
+        Arrays.fill(expected, (double) threads * demand / capacity);
+        assertArrayEquals(expected, cpu.getCompletions(), DELTA);
+    }
+
+    @Test
+    public void sharedArrivalDelaysActiveThread() {
+        // alone, the first thread would be done at 1. It has 50 left when the second arrives at 0.5, both are served
+        // with 50 per second, so it is done at 1.5. The second has 50 left then and is alone again until 2.
+        SchedulerCpu cpu = new SchedulerCpu(CPU.Scheduling.PROCESSOR_SHARING, 100, 2);
+        run(cpu, new double[]{0, 0.5}, new int[]{100, 100});
+        assertArrayEquals(new double[]{1.5, 2}, cpu.getCompletions(), DELTA);
+    }
+
+    @Test
+    public void sharedAdmitsWaitingThreadAfterCompletion() {
+        SchedulerCpu cpu = new SchedulerCpu(CPU.Scheduling.PROCESSOR_SHARING, 100, 3);
+        cpu.scheduler.setThreadPool(1, 2);
+        cpu.addThread(0, 100, 0);
+        cpu.addThread(1, 50, 0);
+        cpu.addThread(2, 100, 0);
+        assertEquals(1, cpu.scheduler.getActiveThreadCount());
+        assertEquals(2, cpu.scheduler.getWaitingThreadCount());
+        assertTrue(cpu.threads[1].isWaiting());
+        assertEquals(1, cpu.getEventTime(), DELTA);
+
+        // the first waiting thread starts when the active one is done and gets the whole capacity
+        cpu.eventRoutine(cpu.getEventTime());
+        assertEquals(1, cpu.getCompletions()[0], DELTA);
+        assertEquals(1, cpu.scheduler.getActiveThreadCount());
+        assertSame(cpu.threads[1], cpu.scheduler.getActiveThread(0));
+        assertEquals(1, cpu.scheduler.getWaitingThreadCount());
+        assertEquals(1.5, cpu.getEventTime(), DELTA);
+
+        run(cpu, new double[0], new int[0]);
+        assertArrayEquals(new double[]{1, 1.5, 2.5}, cpu.getCompletions(), DELTA);
+        assertEquals(0, cpu.scheduler.getWaitingThreadCount());
+    }
+
+    @Test
+    public void sharedRejectsThreadWhenQueueIsFull() {
+        SchedulerCpu cpu = new SchedulerCpu(CPU.Scheduling.PROCESSOR_SHARING, 100, 3);
+        cpu.scheduler.setThreadPool(1, 1);
+        run(cpu, new double[]{0, 0, 0}, new int[]{100, 100, 100});
+        assertArrayEquals(new double[]{1, 2, 0}, cpu.getCompletions(), DELTA);
+        assertNull(cpu.rejections[0]);
+        assertNull(cpu.rejections[1]);
+        assertSame(Metric.THREAD_QUEUE, cpu.rejections[2]);
+    }
+}
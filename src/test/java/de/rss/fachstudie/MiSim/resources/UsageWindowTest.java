@@ -0,0 +1,117 @@
+package de.rss.fachstudie.MiSim.resources;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UsageWindowTest {
+    private static final double DELTA = 1e-12;
+
+    private UsageWindow usage;
+
+    @Before
+    public void setUp() {
+        usage = new UsageWindow();
+    }
+
+    /**
+     * The cpu is busy in every other time unit, [0, 1), [2, 3) and so on.
+     */
+    private static boolean isBusy(double time) {
+        return ((int) Math.floor(time) & 1) == 0;
+    }
+
+    private static double busyBetween(int from, int to) {
+        double busy = 0;
+        for (int t = from; t < to; t++) {
+            if (isBusy(t))
+                busy++;
+        }
+        return busy;
+    }
+
+    /**
+     * Samples the busy time at every time unit from <code>from</code> to <code>to</code>, accounting the state of
+     * the unit that just ended first.
+     */
+    private void collect(int from, int to, double window) {
+        for (int t = from; t <= to; t++) {
+            usage.account(t, t > 0 && isBusy(t - 1));
+            usage.collect(t, window, isBusy(t));
+        }
+    }
+
+    @Test
+    public void meanUsageOfKnownBusyIntervals() {
+        // busy in [0, 2) and [5, 6)
+        boolean[] busy = {true, true, false, false, false, true, false, false, false, false};
+        for (int t = 0; t <= 10; t++) {
+            usage.account(t, t > 0 && busy[t - 1]);
+            usage.collect(t, 100, t < 10 && busy[t]);
+        }
+
+        assertEquals(3, usage.getBusyTime(10, false), DELTA);
+        assertEquals(0.3, usage.getMeanUsage(10, 10, false), DELTA);
+        assertEquals(0.2, usage.getMeanUsage(10, 5, false), DELTA);
+        // starts between two samples, the busy time is interpolated in [5, 6)
+        assertEquals(0.5 / 4.5, usage.getMeanUsage(10, 4.5, false), DELTA);
+        assertEquals(0, usage.getMeanUsage(10, 4, false), DELTA);
+    }
+
+    @Test
+    public void keepsOnlyTheWindowAndTheSampleBeforeIt() {
+        collect(0, 20, 5);
+        // samples 15 to 20
+        assertEquals(6, usage.size());
+        assertEquals(busyBetween(15, 20) / 5, usage.getMeanUsage(20, 5, isBusy(20)), DELTA);
+    }
+
+    @Test
+    public void ringBufferGrowsAfterWrappingAround() {
+        // a short window moves the head of the ring buffer around
+        collect(0, 30, 5);
+        // a long window lets the buffer grow beyond its initial 16 samples
+        collect(31, 60, 1000);
+        assertEquals(36, usage.size());
+
+        // the window starts before the oldest sample left, at 25
+        assertEquals(busyBetween(25, 60) / 35, usage.getMeanUsage(60, 40, isBusy(60)), DELTA);
+        assertEquals(busyBetween(40, 60) / 20, usage.getMeanUsage(60, 20, isBusy(60)), DELTA);
+        assertEquals(busyBetween(59, 60), usage.getMeanUsage(60, 1, isBusy(60)), DELTA);
+    }
+
+    @Test
+    public void singleSample() {
+        usage.collect(0, 10, false);
+        usage.account(2, false);
+
+        // busy since 2, the window starts before the sample
+        assertEquals(0.5, usage.getMeanUsage(4, 10, true), DELTA);
+        assertEquals(1, usage.size());
+        // the window starts after the sample: the busy time is interpolated between the sample and now
+        assertEquals(0.5, usage.getMeanUsage(4, 1, true), DELTA);
+    }
+
+    @Test
+    public void windowStartsBeforeFirstSample() {
+        // idle until the first sample at 5, busy since
+        usage.account(5, false);
+        usage.collect(5, 10, true);
+
+        assertEquals(1, usage.getMeanUsage(8, 10, true), DELTA);
+        usage.account(8, true);
+        assertEquals(0.75, usage.getMeanUsage(9, 10, false), DELTA);
+    }
+
+    @Test
+    public void timeEqualToHeadSample() {
+        // without samples and at the time of the only sample there is no interval, the state of the cpu is returned
+        assertEquals(1, usage.getMeanUsage(0, 10, true), DELTA);
+        assertEquals(0, usage.getMeanUsage(0, 10, false), DELTA);
+
+        usage.collect(3, 10, true);
+        assertEquals(1, usage.getMeanUsage(3, 10, true), DELTA);
+        assertEquals(0, usage.getMeanUsage(3, 10, false), DELTA);
+    }
+}
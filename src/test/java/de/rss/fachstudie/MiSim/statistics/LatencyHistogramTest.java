@@ -0,0 +1,159 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private static final double[] PERCENTILES = {0.1, 1, 10, 25, 50, 75, 90, 99, 99.9, 100};
+
+    private static double[] sample(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            // response times over several orders of magnitude
+            values[i] = Math.exp(random.nextGaussian() * 2 + 3);
+        }
+        return values;
+    }
+
+    private static LatencyHistogram record(double[] values) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (double value : values) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+
+    /**
+     * The exact percentile: the smallest value that is greater than or equal to the given share of all values.
+     */
+    private static double exactPercentile(double[] sorted, double percentile) {
+        int rank = Math.max(1, (int) Math.ceil(percentile / 100 * sorted.length));
+        return sorted[rank - 1];
+    }
+
+    private static void assertPercentiles(double[] values, LatencyHistogram histogram) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double percentile : PERCENTILES) {
+            double exact = exactPercentile(sorted, percentile);
+            assertEquals("p" + percentile, exact, histogram.getPercentile(percentile), Math.abs(exact) / 64);
+        }
+    }
+
+    @Test
+    public void percentilesWithinBucketPrecision() {
+        double[] values = sample(new Random(1), 100000);
+        LatencyHistogram histogram = record(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertPercentiles(values, histogram);
+    }
+
+    @Test
+    public void minAndMaxAreExact() {
+        double[] values = sample(new Random(2), 1000);
+        LatencyHistogram histogram = record(values);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(sorted[0], histogram.getMin(), 0);
+        assertEquals(sorted[sorted.length - 1], histogram.getMax(), 0);
+        // a percentile never lies outside of the recorded values
+        assertTrue(histogram.getPercentile(0) >= sorted[0]);
+        assertTrue(histogram.getPercentile(100) <= sorted[sorted.length - 1]);
+    }
+
+    @Test
+    public void zeroValuesReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 60; i++) {
+            histogram.record(0);
+        }
+        for (int i = 1; i <= 40; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(0, histogram.getPercentile(50), 0);
+        assertEquals(0, histogram.getPercentile(60), 0);
+        assertEquals(1, histogram.getPercentile(61), 1.0 / 64);
+
+        LatencyHistogram zeros = new LatencyHistogram();
+        zeros.record(0);
+        zeros.record(0);
+        assertEquals(0, zeros.getPercentile(99), 0);
+        assertEquals(0, zeros.getMean(), 0);
+    }
+
+    @Test
+    public void tinyValuesAreNotCountedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1e-9);
+
+        assertEquals(0, histogram.getPercentile(50), 0);
+        assertTrue(histogram.getPercentile(100) > 0);
+    }
+
+    @Test
+    public void mergeEqualsRecordingAllValues() {
+        Random random = new Random(3);
+        double[] first = sample(random, 20000);
+        double[] second = sample(random, 5000);
+        double[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+
+        LatencyHistogram merged = record(first);
+        merged.merge(record(second));
+        LatencyHistogram expected = record(all);
+
+        assertEquals(all.length, merged.getCount());
+        assertEquals(expected.getMean(), merged.getMean(), 1e-9);
+        assertEquals(expected.getMin(), merged.getMin(), 0);
+        assertEquals(expected.getMax(), merged.getMax(), 0);
+        for (double percentile : PERCENTILES) {
+            assertEquals(expected.getPercentile(percentile), merged.getPercentile(percentile), 0);
+        }
+        assertPercentiles(all, merged);
+    }
+
+    @Test
+    public void mergeWithEmptyHistogram() {
+        LatencyHistogram histogram = record(new double[]{0, 2, 4});
+        histogram.merge(new LatencyHistogram());
+        assertEquals(3, histogram.getCount());
+        assertEquals(0, histogram.getMin(), 0);
+        assertEquals(4, histogram.getMax(), 0);
+
+        LatencyHistogram empty = new LatencyHistogram();
+        empty.merge(histogram);
+        assertEquals(2, empty.getPercentile(50), 2.0 / 64);
+    }
+
+    @Test
+    public void writeAndReadKeepAllBuckets() throws IOException {
+        double[] values = sample(new Random(4), 1000);
+        values[0] = 0;
+        LatencyHistogram histogram = record(values);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.write(new DataOutputStream(bytes));
+        LatencyHistogram read = LatencyHistogram.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(histogram.getCount(), read.getCount());
+        assertEquals(histogram.getMean(), read.getMean(), 0);
+        for (double percentile : PERCENTILES) {
+            assertEquals(histogram.getPercentile(percentile), read.getPercentile(percentile), 0);
+        }
+        assertEquals(0, read.getPercentile(0.1), 0);
+    }
+}
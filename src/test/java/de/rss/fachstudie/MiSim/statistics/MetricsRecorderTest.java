@@ -0,0 +1,142 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import de.rss.fachstudie.MiSim.models.MainModel;
+import de.rss.fachstudie.MiSim.models.ModelFixture;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRecorderTest {
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String file;
+    private MetricsRecorder recorder;
+
+    @Before
+    public void setUp() throws IOException {
+        ModelFixture fixture = new ModelFixture();
+        MainModel model = fixture.getModel();
+        // buckets of 10 time units
+        model.setSimulationTime(100);
+        model.setDatapoints(10);
+
+        file = folder.newFile("metrics.bin").getPath();
+        recorder = new MetricsRecorder(model, file, fixture.build(fixture.service("service", 2)));
+    }
+
+    private static void assertBucket(MetricsReader.Bucket bucket, double time, double min, double max, double mean,
+                                     double last, int count) {
+        assertEquals(time, bucket.getTime(), 0);
+        assertEquals(min, bucket.getMin(), 0);
+        assertEquals(max, bucket.getMax(), 0);
+        assertEquals(mean, bucket.getMean(), DELTA);
+        assertEquals(last, bucket.getLast(), 0);
+        assertEquals(count, bucket.getCount());
+    }
+
+    @Test
+    public void bucketBoundaries() {
+        recorder.record(Metric.CPU, 0, 1, 0);
+        recorder.record(Metric.CPU, 0, 3, 9.999);
+        // the next bucket starts at its lower bound
+        recorder.record(Metric.CPU, 0, 5, 10);
+        recorder.record(Metric.CPU, 0, 2, 19.5);
+        // empty buckets are skipped
+        recorder.record(Metric.CPU, 0, 7, 45);
+        // the end of the simulation is still recorded, later values are ignored
+        recorder.record(Metric.CPU, 0, 4, 100);
+        recorder.record(Metric.CPU, 0, 9, 100.5);
+        recorder.close();
+
+        List<MetricsReader.Bucket> buckets = new MetricsReader(file).getBuckets(Metric.CPU, 0);
+        assertEquals(4, buckets.size());
+        assertBucket(buckets.get(0), 9.999, 1, 3, 2, 3, 2);
+        assertBucket(buckets.get(1), 19.5, 2, 5, 3.5, 2, 2);
+        assertBucket(buckets.get(2), 45, 7, 7, 7, 7, 1);
+        assertBucket(buckets.get(3), 100, 4, 4, 4, 4, 1);
+        assertEquals(6, recorder.getSummary(Metric.CPU, 0).getCount());
+    }
+
+    @Test
+    public void bucketsMergeAllValuesOfTheirInterval() {
+        Random random = new Random(5);
+        double[] min = new double[10];
+        double[] max = new double[10];
+        double[] sum = new double[10];
+        int[] count = new int[10];
+        double[] last = new double[10];
+        for (int i = 0; i < 1000; i++) {
+            double time = i * 0.1;
+            double value = random.nextDouble() * 100;
+            int slot = i / 100;
+            min[slot] = count[slot] == 0 ? value : Math.min(min[slot], value);
+            max[slot] = count[slot] == 0 ? value : Math.max(max[slot], value);
+            sum[slot] += value;
+            count[slot]++;
+            last[slot] = value;
+            recorder.record(Metric.ACTIVE_THREADS, 1, value, time);
+        }
+        recorder.close();
+
+        MetricsReader reader = new MetricsReader(file);
+        List<MetricsReader.Bucket> buckets = reader.getBuckets(Metric.ACTIVE_THREADS, 1);
+        assertEquals(10, buckets.size());
+        for (int slot = 0; slot < 10; slot++) {
+            assertBucket(buckets.get(slot), (slot * 100 + 99) * 0.1, min[slot], max[slot], sum[slot] / count[slot],
+                    last[slot], count[slot]);
+        }
+
+        // the series kept in memory for the report equals the one in the file
+        TreeMap<Double, Double> series = reader.getSeries(Metric.ACTIVE_THREADS, 1);
+        assertEquals(series, recorder.getSeries(Metric.ACTIVE_THREADS, 1).toMap());
+        // other series are not affected
+        assertEquals(0, reader.getBuckets(Metric.ACTIVE_THREADS, 0).size());
+        assertEquals(0, recorder.getSeries(Metric.ACTIVE_THREADS, 0).size());
+    }
+
+    @Test
+    public void reservoirKeepsAtMostItsSize() {
+        for (int i = 0; i < 10000; i++) {
+            recorder.record(Metric.RESPONSE_TIME, 0, i, i * 0.01);
+        }
+        for (int i = 0; i < 100; i++) {
+            recorder.record(Metric.RESPONSE_TIME, 1, i, i);
+        }
+        recorder.close();
+
+        SeriesBuffer samples = recorder.getSamples(Metric.RESPONSE_TIME, 0);
+        assertEquals(500, samples.size());
+        int late = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            // every sample is a recorded value at its time, in order of time
+            assertEquals(samples.getTime(i), samples.getValue(i) * 0.01, DELTA);
+            if (i > 0)
+                assertTrue(samples.getTime(i) > samples.getTime(i - 1));
+            if (samples.getTime(i) >= 50)
+                late++;
+        }
+        // the reservoir is uniform, it keeps samples of the whole series and not only the first ones
+        assertTrue("late samples: " + late, late > 200 && late < 300);
+
+        // a series with fewer values keeps all of them
+        assertEquals(100, recorder.getSamples(Metric.RESPONSE_TIME, 1).size());
+        // only response times are sampled
+        assertEquals(0, recorder.getSamples(Metric.CPU, 0).size());
+
+        MetricsReader reader = new MetricsReader(file);
+        assertEquals(500, reader.getSamples(Metric.RESPONSE_TIME, 0).size());
+        assertEquals(100, reader.getSamples(Metric.RESPONSE_TIME, 1).size());
+    }
+}
@@ -0,0 +1,78 @@
+package de.rss.fachstudie.MiSim.statistics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServiceAggregatesTest {
+    private static final double DELTA = 1e-9;
+
+    private ServiceAggregates aggregates;
+
+    @Before
+    public void setUp() {
+        // microservice 0 with the slots 0 and 1, microservice 1 with the slot 2
+        aggregates = new ServiceAggregates(new int[]{0, 2}, new int[]{2, 1});
+    }
+
+    private double last(Aggregate aggregate) {
+        SeriesBuffer series = aggregates.getSeries(Metric.CPU, 0, aggregate);
+        return series.getValue(series.size() - 1);
+    }
+
+    @Test
+    public void aggregatesAllInstances() {
+        aggregates.update(Metric.CPU, 0, 10);
+        aggregates.update(Metric.CPU, 1, 20);
+        aggregates.sample(1);
+
+        assertEquals(30, last(Aggregate.SUM), DELTA);
+        assertEquals(10, last(Aggregate.MIN), DELTA);
+        assertEquals(15, last(Aggregate.MEAN), DELTA);
+        assertEquals(20, last(Aggregate.MAX), DELTA);
+    }
+
+    @Test
+    public void killedInstanceIsRemoved() {
+        aggregates.update(Metric.CPU, 0, 10);
+        aggregates.update(Metric.CPU, 1, 20);
+        aggregates.sample(1);
+
+        aggregates.removeInstance(1);
+        // a killed instance may still report values, they are ignored
+        aggregates.update(Metric.CPU, 1, 40);
+        aggregates.sample(2);
+
+        assertEquals(10, last(Aggregate.SUM), DELTA);
+        assertEquals(10, last(Aggregate.MIN), DELTA);
+        assertEquals(10, last(Aggregate.MEAN), DELTA);
+        assertEquals(10, last(Aggregate.MAX), DELTA);
+    }
+
+    @Test
+    public void serviceWithoutLiveInstancesOnlyRecordsSum() {
+        aggregates.update(Metric.CPU, 0, 10);
+        aggregates.update(Metric.CPU, 1, 20);
+        aggregates.sample(1);
+
+        aggregates.removeInstance(0);
+        aggregates.removeInstance(1);
+        aggregates.sample(2);
+
+        assertEquals(2, aggregates.getSeries(Metric.CPU, 0, Aggregate.SUM).size());
+        assertEquals(0, last(Aggregate.SUM), DELTA);
+        assertEquals(1, aggregates.getSeries(Metric.CPU, 0, Aggregate.MEAN).size());
+        assertEquals(15, last(Aggregate.MEAN), DELTA);
+    }
+
+    @Test
+    public void otherServicesAreUnaffected() {
+        aggregates.update(Metric.CPU, 2, 30);
+        aggregates.removeInstance(0);
+        aggregates.sample(1);
+
+        SeriesBuffer mean = aggregates.getSeries(Metric.CPU, 1, Aggregate.MEAN);
+        assertEquals(30, mean.getValue(mean.size() - 1), DELTA);
+    }
+}